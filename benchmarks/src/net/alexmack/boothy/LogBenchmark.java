@@ -0,0 +1,70 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * What logging costs the calling thread, for a message below the log level ("filtered")
+ * and one handed to the background writer ("logged"). The writer's output is thrown away,
+ * and with the queue usually full, most logged messages are dropped.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+public class LogBenchmark {
+	
+	private final Integer glyph = 0x4E00;
+	private final String file = "glyphs/_4e00.png";
+	
+	private PrintStream out;
+	
+	@Setup
+	public void setup() {
+		out = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			
+			@Override
+			public void write(int b) {
+			}
+			
+			@Override
+			public void write(byte[] b, int offset, int length) {
+			}
+		
+		}));
+		
+		Boothy.setLogLevel(Boothy.LOG_INFO);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		Boothy.flushLog(1000);
+		System.setOut(out);
+	}
+	
+	@Benchmark
+	public void filtered() {
+		Boothy.logf(Boothy.LOG_DEBUG, "Loading {} from {}", glyph, file);
+	}
+	
+	@Benchmark
+	public void logged() {
+		Boothy.logf(Boothy.LOG_INFO, "Loading {} from {}", glyph, file);
+	}
+
+}
@@ -0,0 +1,132 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Control;
+
+/**
+ * Threads queueing tasks for the rendering thread while it runs them, as
+ * {@link Window#queue} does, against the synchronized list the window used to queue into.
+ * Producers wait while the backlog is full so neither queue can grow without bound, which
+ * makes each group's score roughly the rate tasks get through end to end.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+public class TaskQueueBenchmark {
+	
+	private static final int BACKLOG = 4096;
+	
+	private static final Runnable TASK = new Runnable() {
+		
+		@Override
+		public void run() {
+		}
+	
+	};
+	
+	private final TaskQueue queue = new TaskQueue();
+	private final List<Runnable> list = Collections.synchronizedList(new ArrayList<Runnable>());
+	
+	@Benchmark
+	@Group("queue1")
+	@GroupThreads(1)
+	public void queueProducer1(Control control) {
+		produceQueue(control);
+	}
+	
+	@Benchmark
+	@Group("queue1")
+	@GroupThreads(1)
+	public void queueConsumer1() {
+		queue.run(0);
+	}
+	
+	@Benchmark
+	@Group("queue8")
+	@GroupThreads(8)
+	public void queueProducer8(Control control) {
+		produceQueue(control);
+	}
+	
+	@Benchmark
+	@Group("queue8")
+	@GroupThreads(1)
+	public void queueConsumer8() {
+		queue.run(0);
+	}
+	
+	@Benchmark
+	@Group("list1")
+	@GroupThreads(1)
+	public void listProducer1(Control control) {
+		produceList(control);
+	}
+	
+	@Benchmark
+	@Group("list1")
+	@GroupThreads(1)
+	public void listConsumer1() {
+		consumeList();
+	}
+	
+	@Benchmark
+	@Group("list8")
+	@GroupThreads(8)
+	public void listProducer8(Control control) {
+		produceList(control);
+	}
+	
+	@Benchmark
+	@Group("list8")
+	@GroupThreads(1)
+	public void listConsumer8() {
+		consumeList();
+	}
+	
+	private void produceQueue(Control control) {
+		// Giving up once the iteration's over, the consumer may have stopped by then.
+		while (queue.getDepth() >= BACKLOG) {
+			if (control.stopMeasurement)
+				return;
+			
+			Thread.yield();
+		}
+		
+		queue.add(TASK, Window.PRIORITY_NORMAL);
+	}
+	
+	private void produceList(Control control) {
+		while (list.size() >= BACKLOG) {
+			if (control.stopMeasurement)
+				return;
+			
+			Thread.yield();
+		}
+		
+		list.add(TASK);
+	}
+	
+	private void consumeList() {
+		// The way the window used to run its queue.
+		while (!list.isEmpty())
+			list.remove(0).run();
+	}
+
+}
@@ -0,0 +1,116 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy.font;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.alexmack.boothy.textures.Texture;
+
+/**
+ * Glyph lookup, measuring and wrapping on a font holding ASCII and a block of CJK, and
+ * filling an empty font. Nothing here touches GL, textures are only constructed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class FontBenchmark {
+	
+	private static final int CJK_START = 0x4E00, CJK_COUNT = 4096;
+	
+	private static final String ASCII = "The quick brown fox jumps over the lazy dog, 0123456789 times!";
+	private static final String MIXED = "Boothy 一二三 😀 fallback éè";
+	
+	private Texture[] textures;
+	private Font font;
+	
+	private StringBuilder paragraph;
+	private TextLayout layout;
+	
+	@Setup
+	public void setup() {
+		// A few sizes so widths differ, shared between glyphs as they would be in an atlas.
+		textures = new Texture[4];
+		for (int i = 0; i < textures.length; i++)
+			textures[i] = new Texture(new BufferedImage(6 + i, 12, BufferedImage.TYPE_INT_ARGB));
+		
+		font = new Font(textures[0]);
+		for (int c = 32; c < 127; c++)
+			font.addCharacter(c, textures[c & 3]);
+		for (int c = CJK_START; c < CJK_START + CJK_COUNT; c++)
+			font.addCharacter(c, textures[c & 3]);
+		
+		paragraph = new StringBuilder();
+		for (int i = 0; i < 8; i++)
+			paragraph.append(ASCII).append(' ');
+		layout = new TextLayout();
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(95)
+	public void getAscii(Blackhole blackhole) {
+		for (char c = 32; c < 127; c++)
+			blackhole.consume(font.get(c));
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(CJK_COUNT)
+	public void getCjk(Blackhole blackhole) {
+		for (int c = CJK_START; c < CJK_START + CJK_COUNT; c++)
+			blackhole.consume(font.get(c));
+	}
+	
+	@Benchmark
+	public int getWidthAscii() {
+		return font.getWidth(ASCII, 2);
+	}
+	
+	@Benchmark
+	public int getWidthMixed() {
+		return font.getWidth(MIXED, 2);
+	}
+	
+	@Benchmark
+	public TextLayout layoutInto() {
+		return font.layout(paragraph, 2, 400, layout);
+	}
+	
+	@Benchmark
+	public TextLayout layoutCached() {
+		return font.layout(paragraph, 2, 400);
+	}
+	
+	@Benchmark
+	public Font addAscii() {
+		Font font = new Font(textures[0]);
+		
+		for (int c = 32; c < 127; c++)
+			font.addCharacter(c, textures[c & 3]);
+		
+		return font;
+	}
+	
+	@Benchmark
+	public Font addCjk() {
+		Font font = new Font(textures[0]);
+		
+		for (int c = CJK_START; c < CJK_START + CJK_COUNT; c++)
+			font.addCharacter(c, textures[c & 3]);
+		
+		return font;
+	}
+
+}
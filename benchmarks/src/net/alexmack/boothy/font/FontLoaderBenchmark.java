@@ -0,0 +1,111 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy.font;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.alexmack.boothy.Boothy;
+import net.alexmack.boothy.textures.HeadlessTextureLoader;
+import net.alexmack.boothy.textures.TextureLoader;
+
+/**
+ * Loading a whole font from a generated folder tree of small glyph images, laid out the way
+ * font folders usually are: a subfolder per block, named by code point.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class FontLoaderBenchmark {
+	
+	private static final int FOLDERS = 8, GLYPHS = 128;
+	
+	@Param({"false", "true"})
+	public boolean index;
+	
+	private File root;
+	private TextureLoader loader;
+	private int level;
+	
+	@Setup
+	public void setup() throws IOException {
+		root = Files.createTempDirectory("boothy-font").toFile();
+		
+		BufferedImage glyph = new BufferedImage(8, 12, BufferedImage.TYPE_INT_ARGB);
+		for (int y = 0; y < 12; y++)
+			glyph.setRGB(y % 8, y, 0xFFFFFFFF);
+		
+		ImageIO.write(glyph, "png", new File(root, FontLoader.PATH_FALLBACK));
+		
+		for (int folder = 0; folder < FOLDERS; folder++) {
+			File block = new File(root, "block" + folder);
+			block.mkdir();
+			
+			for (int i = 0; i < GLYPHS; i++)
+				ImageIO.write(glyph, "png", new File(block, "_" + Integer.toHexString(0x100 + folder * GLYPHS + i) + ".png"));
+		}
+		
+		loader = new HeadlessTextureLoader();
+		loader.setInterning(false);
+		
+		// Only problems are logged, so the writer's output isn't part of what's measured.
+		level = Boothy.getLogLevel();
+		Boothy.setLogLevel(Boothy.LOG_WARNING);
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		Boothy.setLogLevel(level);
+		loader.shutdown();
+		
+		Files.walkFileTree(root.toPath(), new SimpleFileVisitor<Path>() {
+			
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+			
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		
+		});
+	}
+	
+	@Benchmark
+	public Font fromFolder() {
+		Font font = new Font(null);
+		FontLoader.fromFolder(font, loader, root, index);
+		return font;
+	}
+
+}
@@ -0,0 +1,139 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy.input;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Dispatching a frame's worth of mixed input to handlers, straight from the polling loop
+ * ("direct") and through an {@link InputQueue} ("queued"), with and without reused events.
+ * Scores are per event; run with "-prof gc" to see the bytes allocated for each. The
+ * handlers sink every event into a {@link Blackhole}, so events escape as they would into
+ * real handlers, and escape analysis can't remove the ones that aren't reused.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+public class InputDispatchBenchmark {
+	
+	private static final int EVENTS = 64;
+	
+	@Param({"false", "true"})
+	public boolean reuse;
+	
+	private final int[] types = new int[EVENTS], codes = new int[EVENTS], xs = new int[EVENTS], ys = new int[EVENTS];
+	
+	private InputDispatcher dispatcher;
+	private InputQueue queue;
+	private Handler handler;
+	
+	@Setup
+	public void setup() {
+		dispatcher = new InputDispatcher();
+		dispatcher.setReuse(reuse);
+		queue = new InputQueue();
+		handler = new Handler();
+		
+		// Mostly moves, with a key and a click every so often. Moves are kept apart so
+		// that the queue has nothing to coalesce.
+		for (int i = 0; i < EVENTS; i++) {
+			switch (i & 7) {
+				case 0:
+					types[i] = InputDispatcher.EVENT_KEY_DOWN;
+					codes[i] = 30;
+					xs[i] = 'a';
+					break;
+				case 2:
+					types[i] = InputDispatcher.EVENT_KEY_PRESSED;
+					codes[i] = 30;
+					xs[i] = 'a';
+					break;
+				case 4:
+					types[i] = InputDispatcher.EVENT_BUTTON_CLICKED;
+					codes[i] = MouseEvent.BUTTON_LEFT;
+					break;
+				default:
+					types[i] = InputDispatcher.EVENT_MOVE;
+					xs[i] = i * 3;
+					ys[i] = i * 2;
+			}
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public void direct(Blackhole blackhole) {
+		handler.blackhole = blackhole;
+		
+		for (int i = 0; i < EVENTS; i++)
+			dispatcher.dispatch(handler, handler, types[i], codes[i], xs[i], ys[i], 16);
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public void queued(Blackhole blackhole) {
+		handler.blackhole = blackhole;
+		
+		for (int i = 0; i < EVENTS; i++)
+			queue.push(types[i], codes[i], xs[i], ys[i], 16);
+		
+		queue.drain(dispatcher, handler, handler);
+	}
+	
+	// Hands every event to the blackhole, so none of them can be optimised away.
+	private static class Handler implements KeyboardHandler, MouseHandler {
+		
+		private Blackhole blackhole;
+		
+		@Override
+		public void onKeyDown(KeyboardEvent event) {
+			blackhole.consume(event);
+		}
+		
+		@Override
+		public void onKeyUp(KeyboardEvent event) {
+			blackhole.consume(event);
+		}
+		
+		@Override
+		public void onKeyPressed(KeyboardEvent event) {
+			blackhole.consume(event);
+		}
+		
+		@Override
+		public void onMove(MouseEvent event) {
+			blackhole.consume(event);
+		}
+		
+		@Override
+		public void onButtonDown(MouseEvent event) {
+			blackhole.consume(event);
+		}
+		
+		@Override
+		public void onButtonUp(MouseEvent event) {
+			blackhole.consume(event);
+		}
+		
+		@Override
+		public void onButtonClicked(MouseEvent event) {
+			blackhole.consume(event);
+		}
+	
+	}
+
+}
@@ -0,0 +1,21 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy.textures;
+
+/**
+ * A {@link TextureLoader} that never queues anything for upload, so textures can be loaded
+ * without a {@link net.alexmack.boothy.Window} or a GL context.
+ */
+public class HeadlessTextureLoader extends TextureLoader {
+	
+	public HeadlessTextureLoader() {
+		super(null);
+	}
+	
+	@Override
+	protected Texture process(Texture texture) {
+		return texture;
+	}
+
+}
@@ -0,0 +1,87 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy.textures;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import net.alexmack.boothy.Boothy;
+import net.alexmack.boothy.backend.Backend;
+import net.alexmack.boothy.backend.HeadlessBackend;
+
+/**
+ * The CPU side of drawing a frame of debug shapes through a {@link ShapeBatch} against the
+ * {@link HeadlessBackend}: building their triangles and copying them into the native
+ * buffer handed to GL. Scores are per shape.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ShapeBatchBenchmark {
+	
+	private static final int SHAPES = 3000;
+	
+	private Backend backend;
+	private ShapeBatch batch;
+	
+	@Setup
+	public void setup() {
+		backend = Boothy.getBackend();
+		Boothy.setBackend(new HeadlessBackend());
+		batch = new ShapeBatch();
+	}
+	
+	@TearDown
+	public void tearDown() {
+		Boothy.setBackend(backend);
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(SHAPES)
+	public ShapeBatch rects() {
+		batch.begin();
+		
+		for (int i = 0; i < SHAPES; i++)
+			batch.fillRect((i & 63) * 8, (i >> 6) * 8, 6, 6, 0xFF0000, 0x0000FF);
+		
+		batch.end();
+		return batch;
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(SHAPES)
+	public ShapeBatch lines() {
+		batch.begin();
+		
+		for (int i = 0; i < SHAPES; i++)
+			batch.line(i & 511, 0, 0, i & 511, 2);
+		
+		batch.end();
+		return batch;
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(SHAPES)
+	public ShapeBatch circles() {
+		batch.begin();
+		
+		for (int i = 0; i < SHAPES; i++)
+			batch.fillCircle((i & 63) * 8, (i >> 6) * 8, 4, 12);
+		
+		batch.end();
+		return batch;
+	}
+
+}
@@ -0,0 +1,137 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy.textures;
+
+import java.awt.image.BufferedImage;
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.lwjgl.BufferUtils;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import net.alexmack.boothy.Boothy;
+import net.alexmack.boothy.backend.Backend;
+import net.alexmack.boothy.backend.HeadlessBackend;
+
+/**
+ * The CPU side of drawing a batch of sprites: laying out their quads and copying them into
+ * the native buffer handed to GL, scored per sprite. The frame benchmarks draw a frame of
+ * sprites through {@link Texture#draw(int, int)} against the {@link HeadlessBackend}, the
+ * way a window does with batching on and off. They're scored per frame, and count the
+ * draw calls and frames drawn.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class SpriteBatchBenchmark {
+	
+	private static final int SPRITES = SpriteBatch.DEFAULT_CAPACITY;
+	
+	/**
+	 * Counted by the frame benchmarks, and reported next to their scores. JMH adds the
+	 * counts of every iteration together, so divide draw calls by frames for each frame's.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Frames {
+		
+		public long drawCalls, frames;
+		
+		@Setup(Level.Iteration)
+		public void reset() {
+			drawCalls = frames = 0;
+		}
+	
+	}
+	
+	private Backend previous;
+	private HeadlessBackend backend;
+	private SpriteBatch batch;
+	
+	private Texture texture;
+	private float[] staging;
+	private FloatBuffer vertices;
+	
+	@Setup
+	public void setup() {
+		previous = Boothy.getBackend();
+		backend = new HeadlessBackend();
+		Boothy.setBackend(backend);
+		batch = new SpriteBatch();
+		
+		texture = new Texture(new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB));
+		texture.getBinding().run();
+		staging = new float[SPRITES * SpriteBatch.QUAD_FLOATS];
+		vertices = BufferUtils.createFloatBuffer(staging.length);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		Boothy.setBackend(previous);
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(SPRITES)
+	public float[] stage() {
+		int offset = 0;
+		
+		for (int i = 0; i < SPRITES; i++)
+			offset = texture.put(staging, offset, (i & 31) * 16, (i >> 5) * 16, 16, 16);
+		
+		return staging;
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(SPRITES)
+	public FloatBuffer stageAndCopy() {
+		stage();
+		
+		vertices.clear();
+		vertices.put(staging);
+		vertices.flip();
+		return vertices;
+	}
+	
+	@Benchmark
+	public HeadlessBackend immediateFrame(Frames frames) {
+		drawSprites();
+		return endFrame(frames);
+	}
+	
+	@Benchmark
+	public HeadlessBackend batchedFrame(Frames frames) {
+		batch.begin();
+		drawSprites();
+		batch.end();
+		return endFrame(frames);
+	}
+	
+	private void drawSprites() {
+		for (int i = 0; i < SPRITES; i++)
+			texture.draw((i & 31) * 16, (i >> 5) * 16);
+	}
+	
+	private HeadlessBackend endFrame(Frames frames) {
+		long drawCalls = backend.getDrawCalls();
+		backend.update();
+		backend.reset();
+		
+		frames.drawCalls += drawCalls;
+		frames.frames++;
+		return backend;
+	}
+
+}
@@ -0,0 +1,101 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy.textures;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Loading a PNG from disk, decoding it every time ("decode") against reading it back from a
+ * warm {@link TextureCache} ("cached"), as a loader would on a cold and a second startup,
+ * and against sharing the binding of a load still in use ("interned").
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TextureCacheBenchmark {
+	
+	@Param({"64", "512"})
+	public int size;
+	
+	private File directory, file;
+	private TextureLoader decoding, caching, interning;
+	private Texture held;
+	
+	@Setup
+	public void setup() throws IOException {
+		directory = Files.createTempDirectory("boothy-cache").toFile();
+		file = new File(directory, "image.png");
+		
+		BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+		Random random = new Random(size);
+		Graphics2D graphics = image.createGraphics();
+		for (int y = 0; y < size; y += 8)
+			for (int x = 0; x < size; x += 8) {
+				graphics.setColor(new Color(random.nextInt(), true));
+				graphics.fillRect(x, y, 8, 8);
+			}
+		graphics.dispose();
+		ImageIO.write(image, "png", file);
+		
+		decoding = new HeadlessTextureLoader();
+		decoding.setInterning(false);
+		caching = new HeadlessTextureLoader();
+		caching.setInterning(false);
+		caching.setCache(new TextureCache(new File(directory, "cache")));
+		
+		// Warm the cache.
+		caching.fromFile(file);
+		
+		// Keep one texture in use so every later load shares its binding.
+		interning = new HeadlessTextureLoader();
+		held = interning.fromFile(file);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		caching.getCache().clear();
+		new File(directory, "cache").delete();
+		file.delete();
+		directory.delete();
+	}
+	
+	@Benchmark
+	public Texture decode() throws IOException {
+		return decoding.fromFile(file);
+	}
+	
+	@Benchmark
+	public Texture cached() throws IOException {
+		return caching.fromFile(file);
+	}
+	
+	@Benchmark
+	public Texture interned() throws IOException {
+		Texture texture = interning.fromFile(file);
+		texture.release();
+		return texture;
+	}
+
+}
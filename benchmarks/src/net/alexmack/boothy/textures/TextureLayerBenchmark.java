@@ -0,0 +1,87 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy.textures;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import net.alexmack.boothy.Boothy;
+import net.alexmack.boothy.Renderer;
+import net.alexmack.boothy.Window;
+import net.alexmack.boothy.backend.Backend;
+import net.alexmack.boothy.backend.HeadlessBackend;
+
+/**
+ * The CPU side of drawing a frame holding a panel of 800 sprites through a
+ * {@link SpriteBatch} against the {@link HeadlessBackend}, either every frame or cached in
+ * a {@link TextureLayer}. Scores are per frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TextureLayerBenchmark {
+	
+	private static final int SPRITES = 800;
+	
+	private Backend backend;
+	private SpriteBatch batch;
+	private TextureLayer layer;
+	private Renderer panel;
+	
+	@Setup
+	public void setup() {
+		backend = Boothy.getBackend();
+		Boothy.setBackend(new HeadlessBackend());
+		
+		final Texture texture = new Texture(new BufferedImage(8, 8, BufferedImage.TYPE_INT_ARGB));
+		texture.getBinding().run();
+		
+		panel = new Renderer() {
+			
+			@Override
+			public void render(Window window) {
+				for (int i = 0; i < SPRITES; i++)
+					texture.draw((i % 40) * 8, (i / 40) * 8);
+			}
+		
+		};
+		
+		batch = new SpriteBatch();
+		layer = new TextureLayer(320, 160);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		layer.release();
+		Boothy.setBackend(backend);
+	}
+	
+	@Benchmark
+	public SpriteBatch direct() {
+		batch.begin();
+		panel.render(null);
+		batch.end();
+		return batch;
+	}
+	
+	@Benchmark
+	public SpriteBatch layered() {
+		batch.begin();
+		layer.draw(null, panel, 0, 0);
+		batch.end();
+		return batch;
+	}
+
+}
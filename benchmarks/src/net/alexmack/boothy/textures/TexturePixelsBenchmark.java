@@ -0,0 +1,90 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy.textures;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.lwjgl.BufferUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Converting decoded images into the buffer handed to glTexImage2D, for each of the image
+ * types the decoder commonly produces. "legacy" is the per pixel RGBA conversion every
+ * image used to go through, kept for comparison.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TexturePixelsBenchmark {
+	
+	@Param({"INT_ARGB", "INT_RGB", "4BYTE_ABGR", "3BYTE_BGR", "BYTE_INDEXED"})
+	public String type;
+	
+	@Param({"16", "256", "1024"})
+	public int size;
+	
+	private BufferedImage image;
+	private TexturePixels pixels;
+	private ByteBuffer legacy;
+	
+	@Setup
+	public void setup() throws ReflectiveOperationException {
+		Field field = BufferedImage.class.getField("TYPE_" + type);
+		image = new BufferedImage(size, size, field.getInt(null));
+		
+		// Noise, so nothing about the pixels is special.
+		Random random = new Random(size);
+		Graphics2D graphics = image.createGraphics();
+		for (int y = 0; y < size; y += 4)
+			for (int x = 0; x < size; x += 4) {
+				graphics.setColor(new Color(random.nextInt(), true));
+				graphics.fillRect(x, y, 4, 4);
+			}
+		graphics.dispose();
+		
+		pixels = new TexturePixels();
+		legacy = BufferUtils.createByteBuffer(size * size * 4);
+	}
+	
+	@Benchmark
+	public ByteBuffer load() {
+		return pixels.load(image);
+	}
+	
+	@Benchmark
+	public ByteBuffer legacy() {
+		int width = image.getWidth(), height = image.getHeight();
+		
+		int[] argb = new int[width * height];
+		image.getRGB(0, 0, width, height, argb, 0, width);
+		
+		// The buffer is reused here, the old loader also allocated a new one every time.
+		legacy.clear();
+		for (int pixel : argb) {
+			legacy.put((byte) ((pixel >> 16) & 0xFF));
+			legacy.put((byte) ((pixel >> 8) & 0xFF));
+			legacy.put((byte) ((pixel) & 0xFF));
+			legacy.put((byte) ((pixel >> 24) & 0xFF));
+		}
+		
+		legacy.flip();
+		return legacy;
+	}
+
+}
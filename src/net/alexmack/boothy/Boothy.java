@@ -3,6 +3,11 @@
  */
 package net.alexmack.boothy;
 
+import net.alexmack.boothy.backend.Backend;
+import net.alexmack.boothy.backend.HeadlessBackend;
+import net.alexmack.boothy.backend.LwjglBackend;
+import net.alexmack.boothy.backend.StateCache;
+
 public class Boothy {
 
 	public static final String VERSION = "ALPHA 1.0.0";
@@ -16,9 +21,112 @@ public class Boothy {
 	public static final int LOG_ERROR = 3;
 	public static final int LOG_FATALITY = 4;
 	
+	// What to do with messages logged while the log's queue is full.
+	public static final int LOG_DROP_NEWEST = 0, LOG_DROP_OLDEST = 1, LOG_BLOCK = 2;
+	
+	private static volatile int logLevel = LOG_INFO;
+	private static final LogWriter writer = new LogWriter();
+	
+	// Running with -Dboothy.backend=headless needs no display at all.
+	private static volatile Backend backend = new StateCache("headless".equals(System.getProperty("boothy.backend"))
+			? new HeadlessBackend() : new LwjglBackend());
+	
+	/**
+	 * Logs each string as a line of its own, if the level is being logged. Lines are
+	 * written by a background thread, so logging never waits on the output.
+	 */
 	public static void log(int level, String... strings) {
-		for (String string : strings)
-			System.out.println("[BTHY] " + level + "/ " + string);
+		if (level >= logLevel)
+			writer.add(level, null, strings);
+	}
+	
+	/**
+	 * Logs a line made by replacing each "{}" in the format with the next argument. Nothing
+	 * is formatted unless the level is being logged, and then only by the background
+	 * thread, so arguments must not change once passed.
+	 */
+	public static void logf(int level, String format, Object arg) {
+		if (level >= logLevel)
+			writer.add(level, format, new Object[] {arg});
+	}
+	
+	public static void logf(int level, String format, Object arg1, Object arg2) {
+		if (level >= logLevel)
+			writer.add(level, format, new Object[] {arg1, arg2});
+	}
+	
+	public static void logf(int level, String format, Object arg1, Object arg2, Object arg3) {
+		if (level >= logLevel)
+			writer.add(level, format, new Object[] {arg1, arg2, arg3});
+	}
+	
+	public static void logf(int level, String format, Object... args) {
+		if (level >= logLevel)
+			writer.add(level, format, args);
+	}
+	
+	/**
+	 * Returns whether messages of the level are logged, for skipping work only done to
+	 * build a message.
+	 */
+	public static boolean isLogged(int level) {
+		return level >= logLevel;
+	}
+	
+	/**
+	 * Sets the lowest level of message logged, {@link #LOG_INFO} by default.
+	 */
+	public static void setLogLevel(int level) {
+		logLevel = level;
+	}
+	
+	public static int getLogLevel() {
+		return logLevel;
+	}
+	
+	/**
+	 * Sets what happens to messages logged while 4096 messages are already waiting to be
+	 * written: {@link #LOG_DROP_NEWEST}, the default, throws away the
+	 * new message, {@link #LOG_DROP_OLDEST} the oldest waiting, and {@link #LOG_BLOCK}
+	 * waits for room, which the rendering thread should never do.
+	 */
+	public static void setLogPolicy(int policy) {
+		writer.setPolicy(policy);
+	}
+	
+	public static int getLogPolicy() {
+		return writer.getPolicy();
+	}
+	
+	/**
+	 * Returns the number of messages dropped because the log's queue was full.
+	 */
+	public static long getLogDropped() {
+		return writer.getDropped();
+	}
+	
+	/**
+	 * Waits up to the given number of milliseconds for the log's queue to be written out.
+	 */
+	public static void flushLog(long timeout) {
+		writer.flush(timeout);
+	}
+	
+	/**
+	 * Sets the {@link Backend} used for display, input and drawing. This must be done
+	 * before any {@link Window} is created. The default backend is wrapped in a
+	 * {@link StateCache}; wrap any backend given here in one to keep skipping redundant
+	 * state changes.
+	 */
+	public static void setBackend(Backend backend) {
+		if (backend == null)
+			throw new IllegalArgumentException("Boothy cannot use a null backend!");
+		
+		Boothy.backend = backend;
+	}
+	
+	public static Backend getBackend() {
+		return backend;
 	}
 	
 }
@@ -0,0 +1,232 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * Timings of each phase of the most recent frames drawn by a {@link Window}, in
+ * nanoseconds. The rendering thread writes each frame's timings into a ring without
+ * locking or allocating; readers sort a copy of the ring when asked for a percentile, so
+ * a reading may be a frame out of date. Also exposed over JMX once {@link #register} has
+ * been called, with attributes such as "RenderP95" for each phase.
+ */
+public class FrameStats implements DynamicMBean {
+	
+	public static final int DEFAULT_FRAMES = 1024;
+	
+	public static final int PHASE_QUEUE = 0, PHASE_UPDATE = 1, PHASE_RENDER = 2, PHASE_DISPLAY = 3;
+	public static final int PHASE_INPUT = 4, PHASE_SYNC = 5, PHASE_FRAME = 6;
+	public static final int PHASES = 7;
+	
+	private static final String[] NAMES = new String[] {
+			"Queue", "Update", "Render", "Display", "Input", "Sync", "Frame"
+	};
+	
+	private static final String[] STATISTICS = new String[] {
+			"P50", "P95", "P99", "Max", "Mean"
+	};
+	
+	private final long[][] samples;
+	private final int mask;
+	
+	// Written only by the rendering thread, marks a frame's timings as complete.
+	private volatile long frames = 0;
+	
+	private ObjectName name = null;
+	
+	FrameStats() {
+		this(DEFAULT_FRAMES);
+	}
+	
+	FrameStats(int size) {
+		if (size <= 0 || Integer.bitCount(size) != 1)
+			throw new IllegalArgumentException("FrameStats size must be a power of two!");
+		
+		samples = new long[PHASES][size];
+		mask = size - 1;
+	}
+	
+	/**
+	 * Records the time from the start to now against the phase of the current frame,
+	 * returning now to start the next phase from.
+	 */
+	long record(int phase, long start) {
+		long now = System.nanoTime();
+		samples[phase][(int) frames & mask] = now - start;
+		return now;
+	}
+	
+	/**
+	 * Records the whole frame's time and moves on to the next frame.
+	 */
+	void endFrame(long start) {
+		samples[PHASE_FRAME][(int) frames & mask] = System.nanoTime() - start;
+		frames++;
+	}
+	
+	/**
+	 * Forgets every frame recorded, for when timing is enabled again after a pause. Only
+	 * the rendering {@link Thread} may call this, as it's the one recording.
+	 */
+	void reset() {
+		for (long[] phase : samples)
+			Arrays.fill(phase, 0);
+		
+		frames = 0;
+	}
+	
+	public long getFrames() {
+		return frames;
+	}
+	
+	/**
+	 * Returns the time below which the given percentage (0 to 100) of recent frames spent
+	 * in the phase.
+	 */
+	public long getPercentile(int phase, double percentile) {
+		long[] sorted = getSamples(phase);
+		if (sorted.length == 0)
+			return 0;
+		
+		Arrays.sort(sorted);
+		
+		int index = (int) Math.ceil(percentile / 100D * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+	}
+	
+	public long getMax(int phase) {
+		long max = 0;
+		
+		for (long sample : getSamples(phase))
+			max = sample > max ? sample : max;
+		
+		return max;
+	}
+	
+	public long getMean(int phase) {
+		long[] samples = getSamples(phase);
+		if (samples.length == 0)
+			return 0;
+		
+		long total = 0;
+		for (long sample : samples)
+			total += sample;
+		
+		return total / samples.length;
+	}
+	
+	public static String getPhaseName(int phase) {
+		return NAMES[phase];
+	}
+	
+	private long[] getSamples(int phase) {
+		int count = (int) Math.min(frames, samples[phase].length);
+		return Arrays.copyOf(samples[phase], count);
+	}
+	
+	/**
+	 * Registers these statistics with the platform MBean server under
+	 * "net.alexmack.boothy:type=FrameStats,name=" and the given name.
+	 */
+	public synchronized void register(String name) throws JMException {
+		unregister();
+		
+		ObjectName object = new ObjectName("net.alexmack.boothy:type=FrameStats,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, object);
+		this.name = object;
+	}
+	
+	public synchronized void unregister() throws JMException {
+		if (name == null)
+			return;
+		
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+		name = null;
+	}
+	
+	@Override
+	public Object getAttribute(String attribute) throws AttributeNotFoundException {
+		if (attribute.equals("Frames"))
+			return getFrames();
+		
+		for (int phase = 0; phase < PHASES; phase++) {
+			if (!attribute.startsWith(NAMES[phase]))
+				continue;
+			
+			switch (attribute.substring(NAMES[phase].length())) {
+				case "P50":
+					return getPercentile(phase, 50);
+				case "P95":
+					return getPercentile(phase, 95);
+				case "P99":
+					return getPercentile(phase, 99);
+				case "Max":
+					return getMax(phase);
+				case "Mean":
+					return getMean(phase);
+			}
+		}
+		
+		throw new AttributeNotFoundException("No attribute \"" + attribute + "\"!");
+	}
+	
+	@Override
+	public AttributeList getAttributes(String[] attributes) {
+		AttributeList list = new AttributeList();
+		
+		for (String attribute : attributes)
+			try {
+				list.add(new Attribute(attribute, getAttribute(attribute)));
+			}catch (AttributeNotFoundException e) {
+				// Missing attributes are left out of the list.
+			}
+		
+		return list;
+	}
+	
+	@Override
+	public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+		throw new AttributeNotFoundException("FrameStats attributes are read only!");
+	}
+	
+	@Override
+	public AttributeList setAttributes(AttributeList attributes) {
+		return new AttributeList();
+	}
+	
+	@Override
+	public Object invoke(String action, Object[] params, String[] signature) throws ReflectionException {
+		// There are no operations to invoke.
+		throw new ReflectionException(new NoSuchMethodException(action));
+	}
+	
+	@Override
+	public MBeanInfo getMBeanInfo() {
+		MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[PHASES * STATISTICS.length + 1];
+		attributes[0] = new MBeanAttributeInfo("Frames", "long", "Frames drawn", true, false, false);
+		
+		int i = 1;
+		for (String phase : NAMES)
+			for (String statistic : STATISTICS)
+				attributes[i++] = new MBeanAttributeInfo(phase + statistic, "long",
+						statistic + " nanoseconds spent in the " + phase.toLowerCase() + " phase", true, false, false);
+		
+		return new MBeanInfo(FrameStats.class.getName(), "Boothy frame timings", attributes, null,
+				new MBeanOperationInfo[0], null);
+	}
+
+}
@@ -0,0 +1,179 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Writes log messages from a background thread, so that logging never waits on the output.
+// Messages are only formatted once they get here, and are dropped by the policy set when
+// the queue is full.
+class LogWriter implements Runnable {
+	
+	static final int CAPACITY = 4096;
+	
+	private final ArrayBlockingQueue<Message> queue = new ArrayBlockingQueue<>(CAPACITY);
+	private final AtomicLong dropped = new AtomicLong();
+	
+	// Messages queued or being written, so flushing knows when everything is out.
+	private final AtomicInteger outstanding = new AtomicInteger();
+	private volatile int policy = Boothy.LOG_DROP_NEWEST;
+	
+	// Only touched by the writing thread.
+	private final List<Message> pending = new ArrayList<>();
+	private final StringBuilder builder = new StringBuilder();
+	private long reported = 0;
+	
+	LogWriter() {
+		Thread thread = new Thread(this);
+		thread.setName(Boothy.NAME + " Logger");
+		thread.setDaemon(true);
+		thread.start();
+		
+		// Whatever's still queued is written out before the JVM goes.
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			
+			@Override
+			public void run() {
+				flush(1000);
+			}
+		
+		});
+	}
+	
+	void add(int level, String format, Object[] args) {
+		Message message = new Message(level, format, args);
+		outstanding.incrementAndGet();
+		
+		if (queue.offer(message))
+			return;
+		
+		switch (policy) {
+			case Boothy.LOG_DROP_OLDEST:
+				// Make room by throwing away the oldest, unless the writer got there first.
+				while (!queue.offer(message))
+					if (queue.poll() != null) {
+						dropped.incrementAndGet();
+						outstanding.decrementAndGet();
+					}
+				break;
+			case Boothy.LOG_BLOCK:
+				try {
+					queue.put(message);
+				}catch (InterruptedException e) {
+					dropped.incrementAndGet();
+					outstanding.decrementAndGet();
+					Thread.currentThread().interrupt();
+				}
+				break;
+			default:
+				dropped.incrementAndGet();
+				outstanding.decrementAndGet();
+		}
+	}
+	
+	@Override
+	public void run() {
+		for (;;) {
+			try {
+				pending.add(queue.take());
+			}catch (InterruptedException e) {
+				continue;
+			}
+			
+			// Write everything waiting in one go.
+			queue.drainTo(pending);
+			
+			long dropped = this.dropped.get();
+			if (dropped != reported) {
+				append(Boothy.LOG_WARNING, "Dropped " + (dropped - reported) + " log messages!");
+				reported = dropped;
+			}
+			
+			for (Message message : pending)
+				message.append(this);
+			
+			PrintStream out = System.out;
+			out.print(builder);
+			out.flush();
+			
+			outstanding.addAndGet(-pending.size());
+			pending.clear();
+			
+			// Don't hang on to the memory of an unusually large batch.
+			if (builder.capacity() > 65536)
+				builder.trimToSize();
+			builder.setLength(0);
+		}
+	}
+	
+	/**
+	 * Waits up to the given number of milliseconds for everything queued to be written.
+	 */
+	void flush(long timeout) {
+		long end = System.currentTimeMillis() + timeout;
+		
+		while (outstanding.get() > 0 && System.currentTimeMillis() < end)
+			try {
+				Thread.sleep(1);
+			}catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+	}
+	
+	void setPolicy(int policy) {
+		this.policy = policy;
+	}
+	
+	int getPolicy() {
+		return policy;
+	}
+	
+	long getDropped() {
+		return dropped.get();
+	}
+	
+	private void append(int level, String string) {
+		builder.append("[BTHY] ").append(level).append("/ ").append(string).append(System.lineSeparator());
+	}
+	
+	private static class Message {
+		
+		private final int level;
+		private final String format;
+		private final Object[] args;
+		
+		private Message(int level, String format, Object[] args) {
+			this.level = level;
+			this.format = format;
+			this.args = args;
+		}
+		
+		private void append(LogWriter writer) {
+			// Plain messages, given as a list of strings, are one line each.
+			if (format == null) {
+				for (Object string : args)
+					writer.append(level, String.valueOf(string));
+				return;
+			}
+			
+			StringBuilder builder = writer.builder;
+			builder.append("[BTHY] ").append(level).append("/ ");
+			
+			// Each "{}" is replaced by the next argument, any left over are ignored.
+			int start = 0, arg = 0;
+			for (int i; (i = format.indexOf("{}", start)) >= 0 && arg < args.length; start = i + 2)
+				builder.append(format, start, i).append(args[arg++]);
+			
+			builder.append(format, start, format.length()).append(System.lineSeparator());
+		}
+	
+	}
+
+}
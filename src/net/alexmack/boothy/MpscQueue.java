@@ -0,0 +1,61 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+// A lock-free linked queue that any number of threads may add to, but only one may poll.
+class MpscQueue<T> {
+	
+	private static final class Node<T> {
+		
+		@SuppressWarnings("rawtypes")
+		private static final AtomicReferenceFieldUpdater<Node, Node> NEXT =
+				AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
+		
+		private T value;
+		private volatile Node<T> next;
+		
+		private Node(T value) {
+			this.value = value;
+		}
+		
+		private void setNext(Node<T> next) {
+			NEXT.lazySet(this, next);
+		}
+	
+	}
+	
+	// Producers swing the head to their node, the consumer follows from the tail.
+	private final AtomicReference<Node<T>> head;
+	private Node<T> tail;
+	
+	MpscQueue() {
+		Node<T> stub = new Node<>(null);
+		head = new AtomicReference<>(stub);
+		tail = stub;
+	}
+	
+	void offer(T value) {
+		Node<T> node = new Node<>(value);
+		head.getAndSet(node).setNext(node);
+	}
+	
+	/**
+	 * Returns the oldest value, or null if there is none. A value whose producer is still
+	 * linking it in is picked up by a later poll. Only the consuming thread may call this.
+	 */
+	T poll() {
+		Node<T> next = tail.next;
+		if (next == null)
+			return null;
+		
+		T value = next.value;
+		next.value = null;
+		tail = next;
+		return value;
+	}
+
+}
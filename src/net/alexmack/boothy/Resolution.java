@@ -8,24 +8,50 @@ import org.lwjgl.opengl.Display;
 import org.lwjgl.opengl.DisplayMode;
 
 public class Resolution {
-
+	
+	// Asking for the display modes is slow, so they're only asked for once.
+	private static DisplayMode[] modes = null;
+	
 	public static Resolution getDesktopResolution() {
 		return new Resolution(Display.getDesktopDisplayMode());
 	}
 	
 	public static Resolution[] getAllResolutions() {
-		try {
-			DisplayMode[] modes = Display.getAvailableDisplayModes();
-			Resolution[] resolutions = new Resolution[modes.length];
-			
-			for (int i = 0; i < modes.length; i++)
-				resolutions[i] = new Resolution(modes[i]);
-			
-			return resolutions;
-		}catch (LWJGLException e) {
-			Boothy.log(Boothy.LOG_ERROR, "Failed to get any available display modes!");
-			return new Resolution[0];
-		}
+		DisplayMode[] modes = loadDisplayModes();
+		Resolution[] resolutions = new Resolution[modes.length];
+		
+		for (int i = 0; i < modes.length; i++)
+			resolutions[i] = new Resolution(modes[i]);
+		
+		return resolutions;
+	}
+	
+	/**
+	 * Returns the available display modes, asking for them the first time only. If they
+	 * can't be had an empty array is returned, and they're asked for again next time.
+	 */
+	public static DisplayMode[] getDisplayModes() {
+		return loadDisplayModes().clone();
+	}
+	
+	/**
+	 * Forgets the display modes, so that they're asked for again, for when a monitor has
+	 * been connected or changed.
+	 */
+	public static synchronized void refreshDisplayModes() {
+		modes = null;
+	}
+	
+	private static synchronized DisplayMode[] loadDisplayModes() {
+		if (modes == null)
+			try {
+				modes = Display.getAvailableDisplayModes();
+			}catch (LWJGLException e) {
+				Boothy.log(Boothy.LOG_ERROR, "Failed to get any available display modes!");
+				return new DisplayMode[0];
+			}
+		
+		return modes;
 	}
 	
 	public static Resolution getHighestResolution() {
@@ -56,21 +82,17 @@ public class Resolution {
 	}
 	
 	public Resolution(int width, int height) {
-		double span = Math.sqrt(Math.pow(width, 2) + Math.pow(height, 2));
+		double span = Math.sqrt((double) width * width + (double) height * height);
 		double spanBest = Double.MAX_VALUE;
 		
-		try {
-			for (DisplayMode mode : Display.getAvailableDisplayModes()) {
-				double spanCandidate = Math.sqrt(Math.pow(mode.getWidth(), 2) + Math.pow(mode.getHeight(), 2));
-				spanCandidate = Math.abs(span - spanCandidate);
-				
-				if (spanCandidate < spanBest) {
-					spanBest = spanCandidate;
-					this.mode = mode;
-				}
+		for (DisplayMode mode : loadDisplayModes()) {
+			double spanCandidate = Math.sqrt((double) mode.getWidth() * mode.getWidth() + (double) mode.getHeight() * mode.getHeight());
+			spanCandidate = Math.abs(span - spanCandidate);
+			
+			if (spanCandidate < spanBest) {
+				spanBest = spanCandidate;
+				this.mode = mode;
 			}
-		}catch (LWJGLException lwjgl) {
-			Boothy.log(Boothy.LOG_ERROR, "Failed to get display modes!");
 		}
 		
 		if (this.mode == null)
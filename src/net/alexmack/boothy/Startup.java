@@ -0,0 +1,297 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import net.alexmack.boothy.backend.Backend;
+import net.alexmack.boothy.backend.LwjglBackend;
+import net.alexmack.boothy.backend.StateCache;
+import net.alexmack.boothy.font.Font;
+import net.alexmack.boothy.font.FontLoader;
+import net.alexmack.boothy.textures.Texture;
+import net.alexmack.boothy.textures.TextureLoader;
+
+/**
+ * Overlaps the work done before the first frame and reports how long each part took. The
+ * display modes are fetched in the background as soon as this is created; once the window
+ * is opened its display is created on the rendering {@link Thread} while textures and
+ * fonts decode on worker threads, and each texture is uploaded as soon as it's decoded and
+ * the display exists. For example:
+ * 
+ * <pre>
+ * Startup startup = new Startup();
+ * Window window = startup.open(startup.resolve(800, 600), renderer);
+ * 
+ * Future&lt;Texture&gt; player = startup.load(new File("player.png"));
+ * startup.loadFont(font, new File("font"));
+ * 
+ * startup.finish(10, TimeUnit.SECONDS);
+ * </pre>
+ */
+public class Startup {
+	
+	private final long start = System.nanoTime();
+	private final List<Phase> phases = new ArrayList<>();
+	
+	private final Thread modes;
+	
+	private Window window = null;
+	private TextureLoader loader = null;
+	private long opened = 0;
+	
+	private long decodeStart = 0;
+	private final List<Future<Texture>> textures = new ArrayList<>();
+	private final List<Thread> fonts = new ArrayList<>();
+	
+	private String report = null;
+	
+	public Startup() {
+		// Fetch the display modes while the caller gets on with anything else, unless
+		// there's no display to ask.
+		Backend backend = Boothy.getBackend();
+		if (backend instanceof StateCache)
+			backend = ((StateCache) backend).getBackend();
+		
+		if (backend instanceof LwjglBackend) {
+			modes = new Thread(new Runnable() {
+				
+				@Override
+				public void run() {
+					long start = System.nanoTime();
+					Resolution.getDisplayModes();
+					record("Display modes", start, System.nanoTime());
+				}
+			
+			});
+			modes.setName(Boothy.NAME + " Startup");
+			modes.setDaemon(true);
+			modes.start();
+		}else{
+			modes = null;
+		}
+	}
+	
+	/**
+	 * Returns the resolution closest to the given size, waiting for the display modes if
+	 * they're still being fetched.
+	 */
+	public Resolution resolve(int width, int height) {
+		return new Resolution(width, height);
+	}
+	
+	/**
+	 * Creates the window, which creates its display on the rendering {@link Thread}
+	 * without holding up the caller.
+	 */
+	public synchronized Window open(Resolution resolution, Renderer renderer) {
+		if (window != null)
+			throw new IllegalStateException("Startup has already opened a window!");
+		
+		opened = System.nanoTime();
+		window = new Window(resolution, renderer);
+		loader = new TextureLoader(window);
+		record("Window", opened, System.nanoTime());
+		
+		return window;
+	}
+	
+	/**
+	 * Decodes the file on a worker {@link Thread}, to be uploaded once the display exists.
+	 */
+	public synchronized Future<Texture> load(File file) {
+		startDecoding();
+		
+		Future<Texture> texture = loader.loadAsync(file);
+		textures.add(texture);
+		return texture;
+	}
+	
+	public void loadFont(Font font, File folder) {
+		loadFont(font, folder, false);
+	}
+	
+	/**
+	 * Loads the font from the folder on a {@link Thread} of its own, with its glyphs
+	 * decoded on the worker threads. See {@link FontLoader#fromFolder}.
+	 */
+	public synchronized void loadFont(final Font font, final File folder, final boolean index) {
+		startDecoding();
+		
+		final TextureLoader loader = this.loader;
+		Thread thread = new Thread(new Runnable() {
+			
+			@Override
+			public void run() {
+				FontLoader.fromFolder(font, loader, folder, index);
+			}
+		
+		});
+		thread.setName(Boothy.NAME + " Font Loader");
+		thread.setDaemon(true);
+		thread.start();
+		
+		fonts.add(thread);
+	}
+	
+	private void startDecoding() {
+		if (loader == null)
+			throw new IllegalStateException("Startup must open a window before loading anything!");
+		
+		if (decodeStart == 0)
+			decodeStart = System.nanoTime();
+	}
+	
+	/**
+	 * Waits for everything loaded to be decoded and uploaded and for the first frame to be
+	 * shown, then logs the report. Call this as soon as everything has been started, as
+	 * decoding is timed until this sees it finish. Returns false if the timeout passed
+	 * first, in which case the report covers whatever did finish.
+	 */
+	public boolean finish(long timeout, TimeUnit unit) throws InterruptedException {
+		long end = System.nanoTime() + unit.toNanos(timeout);
+		boolean finished = true;
+		
+		List<Future<Texture>> textures;
+		List<Thread> fonts;
+		Window window;
+		long decodeStart;
+		
+		synchronized (this) {
+			if (this.window == null)
+				throw new IllegalStateException("Startup must open a window before finishing!");
+			
+			textures = new ArrayList<>(this.textures);
+			fonts = new ArrayList<>(this.fonts);
+			window = this.window;
+			decodeStart = this.decodeStart;
+		}
+		
+		// Decoding.
+		for (Future<Texture> texture : textures)
+			try {
+				texture.get(Math.max(0, end - System.nanoTime()), TimeUnit.NANOSECONDS);
+			}catch (ExecutionException e) {
+				// The loader has already said what went wrong.
+			}catch (TimeoutException e) {
+				finished = false;
+				break;
+			}
+		
+		for (Thread font : fonts) {
+			font.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime())));
+			finished &= !font.isAlive();
+		}
+		
+		if (decodeStart != 0 && finished)
+			record("Decode", decodeStart, System.nanoTime());
+		
+		// Uploads are queued as textures decode, so once this marker runs they're done.
+		final CountDownLatch uploaded = new CountDownLatch(1);
+		final long[] uploadEnd = new long[1];
+		
+		window.queue(new Runnable() {
+			
+			@Override
+			public void run() {
+				uploadEnd[0] = System.nanoTime();
+				uploaded.countDown();
+			}
+		
+		}, Window.PRIORITY_LOW);
+		
+		finished &= uploaded.await(Math.max(0, end - System.nanoTime()), TimeUnit.NANOSECONDS);
+		finished &= window.awaitFirstFrame(Math.max(0, end - System.nanoTime()), TimeUnit.NANOSECONDS);
+		
+		if (modes != null)
+			modes.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime())));
+		
+		long created = window.getCreatedTime();
+		if (created != 0) {
+			record("Display", opened, created);
+			
+			if (uploadEnd[0] != 0 && (!textures.isEmpty() || !fonts.isEmpty()))
+				record("Upload", created, uploadEnd[0]);
+			
+			if (window.getFirstFrameTime() != 0)
+				record("First frame", created, window.getFirstFrameTime());
+		}
+		
+		report = buildReport(window.getFirstFrameTime());
+		Boothy.log(Boothy.LOG_INFO, report.split("\n"));
+		
+		return finished;
+	}
+	
+	/**
+	 * Returns the report logged by {@link #finish}, or null if it hasn't been called.
+	 */
+	public synchronized String getReport() {
+		return report;
+	}
+	
+	public synchronized Window getWindow() {
+		return window;
+	}
+	
+	public synchronized TextureLoader getLoader() {
+		return loader;
+	}
+	
+	private synchronized void record(String name, long start, long end) {
+		phases.add(new Phase(name, start, end));
+	}
+	
+	private synchronized String buildReport(long firstFrame) {
+		StringBuilder report = new StringBuilder();
+		
+		if (firstFrame != 0)
+			report.append("Time to first frame: ").append(millis(firstFrame - start)).append("ms");
+		else
+			report.append("No frame shown after ").append(millis(System.nanoTime() - start)).append("ms");
+		
+		Collections.sort(phases, new Comparator<Phase>() {
+			
+			@Override
+			public int compare(Phase p1, Phase p2) {
+				return Long.compare(p1.start, p2.start);
+			}
+		
+		});
+		
+		for (Phase phase : phases)
+			report.append("\n  ").append(phase.name).append(": ").append(millis(phase.start - start))
+					.append("ms to ").append(millis(phase.end - start)).append("ms (")
+					.append(millis(phase.end - phase.start)).append("ms)");
+		
+		return report.toString();
+	}
+	
+	private static long millis(long nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+	
+	private static class Phase {
+		
+		private final String name;
+		private final long start, end;
+		
+		private Phase(String name, long start, long end) {
+			this.name = name;
+			this.start = start;
+			this.end = end;
+		}
+	
+	}
+
+}
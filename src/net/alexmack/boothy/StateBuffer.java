@@ -0,0 +1,75 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands state from an {@link Updater} running on its own {@link Thread} to the
+ * {@link Renderer}. The updater publishes each tick's state, and the renderer latches the
+ * last two published states at the start of a frame so it can interpolate between them
+ * using {@link Window#getInterpolation(StateBuffer)}. Published states are shared, so they
+ * mustn't be changed once published.
+ */
+public class StateBuffer<T> {
+	
+	private static class Pair<T> {
+		
+		private final T previous, current;
+		private final long time;
+		
+		private Pair(T previous, T current, long time) {
+			this.previous = previous;
+			this.current = current;
+			this.time = time;
+		}
+	
+	}
+	
+	private final AtomicReference<Pair<T>> published;
+	
+	// Only touched by the rendering thread.
+	private T previous, current;
+	private long time;
+	
+	public StateBuffer(T initial) {
+		time = System.nanoTime();
+		published = new AtomicReference<>(new Pair<>(initial, initial, time));
+		previous = current = initial;
+	}
+	
+	/**
+	 * Publishes the state of the tick just run. Only the updating thread may call this.
+	 */
+	public void publish(T state) {
+		published.set(new Pair<>(published.get().current, state, System.nanoTime()));
+	}
+	
+	/**
+	 * Takes the last two published states for the renderer to use until it latches again.
+	 */
+	public void latch() {
+		Pair<T> pair = published.get();
+		previous = pair.previous;
+		current = pair.current;
+		time = pair.time;
+	}
+	
+	public T getPrevious() {
+		return previous;
+	}
+	
+	public T getCurrent() {
+		return current;
+	}
+	
+	/**
+	 * Returns the {@link System#nanoTime()} at which the latched current state was
+	 * published.
+	 */
+	public long getTime() {
+		return time;
+	}
+
+}
@@ -0,0 +1,129 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Tasks waiting to be run on the rendering thread, split into priority classes. Any thread
+// may add tasks without locking, only the rendering thread may run them.
+class TaskQueue {
+	
+	static final int PRIORITIES = 3;
+	
+	private final MpscQueue<Runnable>[] queues;
+	private final AtomicInteger depth = new AtomicInteger();
+	
+	private volatile long time = 0;
+	private volatile int tasks = 0;
+	private volatile boolean closed = false;
+	
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	TaskQueue() {
+		queues = new MpscQueue[PRIORITIES];
+		
+		for (int i = 0; i < PRIORITIES; i++)
+			queues[i] = new MpscQueue<>();
+	}
+	
+	void add(Runnable runnable, int priority) {
+		if (runnable == null)
+			throw new NullPointerException("Cannot queue a null task!");
+		
+		if (priority < 0 || priority >= PRIORITIES)
+			throw new IllegalArgumentException("Invalid task priority " + priority + "!");
+		
+		// Nothing will run it once closed.
+		if (closed) {
+			cancel(runnable);
+			return;
+		}
+		
+		// Counted first so the depth never dips below zero when it's polled straight away.
+		depth.incrementAndGet();
+		
+		queues[priority].offer(runnable);
+		
+		// Closed while adding it, so the last clear may have missed it.
+		if (closed)
+			cancel(runnable);
+	}
+	
+	/**
+	 * Runs tasks, highest priority first, until there are none left or the budget (in
+	 * nanoseconds) is spent. At least one task is always run so that the queue makes
+	 * progress; a budget of zero or less runs everything.
+	 */
+	void run(long budget) {
+		long start = System.nanoTime();
+		int run = 0;
+		
+		for (;;) {
+			Runnable runnable = poll();
+			if (runnable == null)
+				break;
+			
+			runnable.run();
+			run++;
+			
+			// Leave whatever's left for the next frame once the budget is spent.
+			if (budget > 0 && System.nanoTime() - start >= budget)
+				break;
+		}
+		
+		time = System.nanoTime() - start;
+		tasks = run;
+	}
+	
+	private Runnable poll() {
+		for (MpscQueue<Runnable> queue : queues) {
+			Runnable runnable = queue.poll();
+			
+			if (runnable != null) {
+				depth.decrementAndGet();
+				return runnable;
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Throws away every waiting task, cancelling any that are {@link Future}s so nothing is
+	 * left blocking on them.
+	 */
+	void clear() {
+		Runnable runnable;
+		
+		while ((runnable = poll()) != null)
+			cancel(runnable);
+	}
+	
+	/**
+	 * Clears the queue for good, cancelling any task added afterwards as it's added. Only
+	 * the rendering thread may close the queue.
+	 */
+	void close() {
+		closed = true;
+		clear();
+	}
+	
+	private static void cancel(Runnable runnable) {
+		if (runnable instanceof Future)
+			((Future<?>) runnable).cancel(false);
+	}
+	
+	int getDepth() {
+		return depth.get();
+	}
+	
+	long getTime() {
+		return time;
+	}
+	
+	int getTasks() {
+		return tasks;
+	}
+
+}
@@ -0,0 +1,149 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy;
+
+import java.util.concurrent.locks.LockSupport;
+
+// Runs an Updater at a fixed rate, either stepped by the rendering thread each frame or on
+// a thread of its own.
+class UpdateLoop implements Runnable {
+	
+	private final Window window;
+	private final Updater updater;
+	private final long step;
+	private final boolean threaded;
+	
+	private volatile int maxTicks;
+	private volatile boolean stopped = false;
+	
+	private long accumulator = 0, last = 0;
+	
+	private volatile long ticks = 0, tickTime = 0;
+	private volatile float interpolation = 0;
+	
+	UpdateLoop(Window window, Updater updater, int rate, int maxTicks, boolean threaded) {
+		if (rate <= 0)
+			throw new IllegalArgumentException("Update rate must be positive!");
+		
+		this.window = window;
+		this.updater = updater;
+		this.step = 1000000000L / rate;
+		this.maxTicks = maxTicks;
+		this.threaded = threaded;
+	}
+	
+	void start() {
+		last = tickTime = System.nanoTime();
+		
+		if (threaded) {
+			Thread thread = new Thread(this, Boothy.NAME + " Updater");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+	
+	void stop() {
+		stopped = true;
+	}
+	
+	/**
+	 * Runs however many updates are due since the last frame. Called by the rendering
+	 * thread when the loop isn't threaded.
+	 */
+	void step() {
+		long now = System.nanoTime();
+		accumulator += now - last;
+		last = now;
+		
+		int count = 0;
+		while (accumulator >= step && count < maxTicks) {
+			try {
+				updater.update(window);
+			}catch (Exception e) {
+				Boothy.log(Boothy.LOG_ERROR, "Error in updating!");
+				Boothy.log(Boothy.LOG_ERROR, e.getMessage());
+			}
+			
+			accumulator -= step;
+			ticks++;
+			count++;
+		}
+		
+		// Give up on time that couldn't be caught up on, rather than spiralling.
+		if (accumulator >= step)
+			accumulator %= step;
+		
+		interpolation = (float) accumulator / step;
+	}
+	
+	@Override
+	public void run() {
+		Boothy.logf(Boothy.LOG_INFO, "Started updating in \"{}\"!", Thread.currentThread().getName());
+		long next = tickTime + step;
+		
+		while (!stopped) {
+			long now = System.nanoTime();
+			
+			if (now < next) {
+				LockSupport.parkNanos(next - now);
+				continue;
+			}
+			
+			int count = 0;
+			while (now >= next && count < maxTicks) {
+				try {
+					updater.update(window);
+				}catch (Exception e) {
+					Boothy.log(Boothy.LOG_ERROR, "Error in updating!");
+					Boothy.log(Boothy.LOG_ERROR, e.getMessage());
+				}
+				
+				tickTime = next;
+				ticks++;
+				next += step;
+				count++;
+			}
+			
+			// Give up on ticks that couldn't be caught up on, rather than spiralling.
+			if (now >= next)
+				next = now + step;
+		}
+	}
+	
+	void setMaxTicks(int maxTicks) {
+		this.maxTicks = maxTicks;
+	}
+	
+	boolean isThreaded() {
+		return threaded;
+	}
+	
+	long getTicks() {
+		return ticks;
+	}
+	
+	/**
+	 * Returns how far between the last tick and the next the current moment is, from zero
+	 * to one.
+	 */
+	float getInterpolation() {
+		if (!threaded)
+			return interpolation;
+		
+		return getInterpolation(tickTime);
+	}
+	
+	/**
+	 * As {@link #getInterpolation()}, but measured from the given time of a tick rather
+	 * than the last.
+	 */
+	float getInterpolation(long time) {
+		if (!threaded)
+			return interpolation;
+		
+		float alpha = (float) (System.nanoTime() - time) / step;
+		return alpha < 0 ? 0 : alpha > 1 ? 1 : alpha;
+	}
+
+}
@@ -0,0 +1,10 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy;
+
+public interface Updater {
+	
+	public void update(Window window);
+
+}
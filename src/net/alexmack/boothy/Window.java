@@ -3,48 +3,100 @@
  */
 package net.alexmack.boothy;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
 import org.lwjgl.LWJGLException;
 import org.lwjgl.input.Keyboard;
-import org.lwjgl.input.Mouse;
-import org.lwjgl.opengl.Display;
-import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.PixelFormat;
 
-import net.alexmack.boothy.input.KeyboardEvent;
+import net.alexmack.boothy.backend.Backend;
+import net.alexmack.boothy.input.InputDispatcher;
+import net.alexmack.boothy.input.InputQueue;
 import net.alexmack.boothy.input.KeyboardHandler;
-import net.alexmack.boothy.input.MouseEvent;
 import net.alexmack.boothy.input.MouseHandler;
 import net.alexmack.boothy.input.WindowHandler;
+import net.alexmack.boothy.textures.SpriteBatch;
 
-public class Window {
+public class Window implements Executor {
+	
+	public static final int PRIORITY_HIGH = 0, PRIORITY_NORMAL = 1, PRIORITY_LOW = 2;
+	
+	public static final int DEFAULT_BACKGROUND_FPS = 10;
 	
 	private static final long NODATA = Long.MIN_VALUE;
 	
+	private final Backend backend = Boothy.getBackend();
+	
 	private Thread thread = null;
-	private boolean running = true;
+	private volatile boolean running = true;
 	private Renderer renderer = null;
 	private Resolution resolution = null;
+	private volatile SpriteBatch batch = null;
+	
+	private volatile UpdateLoop updates = null;
+	private volatile FrameStats stats = null;
+	private FrameStats frameStats = null;
+	
+	// Set when timing is enabled again, so the rendering thread forgets old frames itself.
+	private volatile boolean resetStats = false;
+	private int maxTicks = 5;
 	
 	private int fps = 60;
+	private volatile int backgroundFps = DEFAULT_BACKGROUND_FPS;
+	
+	// With on demand rendering, frames are only drawn when something asks for one.
+	private volatile boolean onDemand = false;
+	private volatile boolean requested = false;
+	private boolean foreground = true;
 	private int width = 400, height = 400;
 	
 	private long[] keyboard = new long[Keyboard.KEYBOARD_SIZE];
 	private char[] keyboardChars = new char[keyboard.length];
-	private KeyboardHandler keyboardHandler = null;
+	private volatile KeyboardHandler keyboardHandler = null;
 	
 	private long[] mouse = null;
-	private MouseHandler mouseHandler = null;
+	private volatile MouseHandler mouseHandler = null;
 	
 	private WindowHandler handler = null;
+	private InputDispatcher dispatcher = new InputDispatcher();
+	
+	// When set, input is queued for the executor to dispatch rather than dispatched here.
+	private volatile InputQueue input = null;
+	private volatile Executor inputExecutor = null;
+	private final AtomicBoolean inputScheduled = new AtomicBoolean();
+	private final Runnable inputDrain = new Runnable() {
+		
+		@Override
+		public void run() {
+			InputQueue input;
+			
+			// Keep going if more arrived while draining, unless someone else has it.
+			do {
+				input = Window.this.input;
+				if (input != null)
+					input.drain(dispatcher, keyboardHandler, mouseHandler);
+				
+				inputScheduled.set(false);
+			}while (input != null && !input.isEmpty() && inputScheduled.compareAndSet(false, true));
+		}
+		
+	};
 	
 	private volatile long frame = 0;
 	
-	private List<Runnable> queue = Collections.synchronizedList(new ArrayList<Runnable>());
+	// When the display was created and the first frame shown, from System.nanoTime().
+	private volatile long created = 0, shown = 0;
+	private final CountDownLatch firstFrame = new CountDownLatch(1);
+	
+	private TaskQueue queue = new TaskQueue();
+	private volatile long queueBudget = 0;
 	
 	public Window(Resolution resolution, Renderer renderer) {
 		this.resolution = resolution;
@@ -65,8 +117,16 @@ public class Window {
 					Boothy.log(Boothy.LOG_FATALITY, "Fatal error when running Window!");
 				}
 				
+				// Nothing will run the tasks still queued now, or queued later, or show a frame.
+				queue.close();
+				firstFrame.countDown();
+				
+				UpdateLoop updates = Window.this.updates;
+				if (updates != null)
+					updates.stop();
+				
 				Boothy.log(Boothy.LOG_INFO, "Destroying display...");
-				Display.destroy();
+				backend.destroy();
 			}
 			
 		});
@@ -77,142 +137,253 @@ public class Window {
 	}
 	
 	private void run() throws LWJGLException {
-		Boothy.log(Boothy.LOG_INFO, "Started rendering in \"" + Thread.currentThread().getName() + "\"!");
+		Boothy.logf(Boothy.LOG_INFO, "Started rendering in \"{}\"!", Thread.currentThread().getName());
 		
-		// Setup the display according to the resolution given.
-		Display.setDisplayMode(resolution.getMode());
-		if (resolution.isFullscreenDefault()) {
+		if (resolution.isFullscreenDefault())
 			Boothy.log(Boothy.LOG_INFO, "Defaulting to fullscreen mode...");
-			Display.setFullscreen(true);
-		}
 		
-		// Setup some basic properties.
-		Display.setTitle(Boothy.NAME);
-		Display.setResizable(true);
+		Boothy.logf(Boothy.LOG_INFO, "Creating display using resolution \"{}\"...", resolution);
 		
-		Boothy.log(Boothy.LOG_INFO, "Creating display using resolution \"" + resolution.toString() + "\"...");
-		
-		// Create a display with the default PixelFormat.
-		Display.create(new PixelFormat());
-		// Create the keyboard and mouse.
-		Keyboard.create();
-		Mouse.create();
+		// Setup the display according to the resolution given, along with the keyboard and mouse.
+		backend.create(resolution, Boothy.NAME);
+		created = System.nanoTime();
 		
 		// Setup mouse data array.
-		mouse = new long[Mouse.getButtonCount()];
+		mouse = new long[backend.getMouseButtonCount()];
 		Arrays.fill(mouse, NODATA);
 		
-		while (running = (running && !Display.isCloseRequested())) {
+		// The first frame is always drawn.
+		boolean render = true;
+		
+		while (running = (running && !backend.isCloseRequested())) {
 			long now = System.currentTimeMillis();
 			
-			// Run any queued tasks.
-			while (!queue.isEmpty())
-				queue.remove(0).run();
+			if (onDemand && !render) {
+				render = idle(now);
+				continue;
+			}
+			
+			// Cleared before drawing, so a request made while drawing gets a frame of its own.
+			render = false;
+			requested = false;
+			
+			// Only time the frame's phases if someone's looking.
+			FrameStats stats = this.stats;
+			if (stats != null && resetStats) {
+				resetStats = false;
+				stats.reset();
+			}
+			
+			long start = stats != null ? System.nanoTime() : 0, mark = start;
+			
+			// Run queued tasks, leaving any over budget for the next frame.
+			queue.run(queueBudget);
+			
+			if (stats != null)
+				mark = stats.record(FrameStats.PHASE_QUEUE, mark);
+			
+			// Catch the updater up, unless it's running itself.
+			UpdateLoop updates = this.updates;
+			if (updates != null && !updates.isThreaded())
+				updates.step();
+			
+			if (stats != null)
+				mark = stats.record(FrameStats.PHASE_UPDATE, mark);
 			
 			setupMatrix();
 			
-			// Clear the color buffer. We won't clear the depth buffer as Boothy isn't meant for 3D.
-			GL11.glClear(GL11.GL_COLOR_BUFFER_BIT);
+			backend.clear();
 			
-			if (renderer != null)
+			if (renderer != null) {
+				// Collect the frame's texture draws into the batch, if batching is on.
+				SpriteBatch batch = this.batch;
+				if (batch != null)
+					batch.begin();
+				
 				try {
 					renderer.render(this);
 				}catch (Exception e) {
-					Boothy.log(Boothy.LOG_ERROR, "Error in rendering!");
-					Boothy.log(Boothy.LOG_ERROR, e.getMessage());
+					Boothy.log(Boothy.LOG_ERROR, "Error in rendering!", e.getMessage());
+				}finally {
+					if (batch != null)
+						batch.end();
 				}
+			}
+			
+			if (stats != null)
+				mark = stats.record(FrameStats.PHASE_RENDER, mark);
 			
 			frame++;
-			Display.update();
+			backend.update();
 			
-			// Dispatch keyboard events.
-			while (Keyboard.next()) {
-				// Don't process events if there's no handler.
-				if (keyboardHandler == null)
-					break;
-				
-				int key = Keyboard.getEventKey();
-				
-				// The key state is true if the key is down.
-				if (Keyboard.getEventKeyState()) {
-					char character = Keyboard.getEventCharacter();
-					
-					// Store timestamp in the keyboard array and fire event.
-					keyboard[key] = now;
-					keyboardChars[key] = character;
-					keyboardHandler.onKeyDown(new KeyboardEvent(key, character, NODATA));
-				}else{
-					// Fire the standard key up event.
-					keyboardHandler.onKeyUp(new KeyboardEvent(key, keyboardChars[key], NODATA));
-					
-					// Fire pressed event if necessary.
-					long data = keyboard[key];
-					if (data != NODATA)
-						keyboardHandler.onKeyPressed(new KeyboardEvent(key, keyboardChars[key], now - data));
-					
-					// Reset keyboard array.
-					keyboard[key] = NODATA;
-				}
+			if (shown == 0) {
+				shown = System.nanoTime();
+				firstFrame.countDown();
+			}
+			
+			if (stats != null)
+				mark = stats.record(FrameStats.PHASE_DISPLAY, mark);
+			
+			// Anything arriving while rendering on demand asks for another frame.
+			if (dispatchInput(now))
+				render = true;
+			
+			if (stats != null)
+				mark = stats.record(FrameStats.PHASE_INPUT, mark);
+			
+			int fps = getSyncFps();
+			if (fps > 0)
+				backend.sync(fps);
+			
+			if (stats != null) {
+				stats.record(FrameStats.PHASE_SYNC, mark);
+				stats.endFrame(start);
 			}
+		}
+	}
+	
+	/**
+	 * Dispatches the input polled since the last call, returning true if there was any.
+	 */
+	private boolean dispatchInput(long now) {
+		boolean events = false;
+		
+		// Dispatch keyboard events.
+		while (backend.nextKey()) {
+			events = true;
 			
-			// Dispatch mouse events.
-			while (Mouse.next()) {
-				// Don't process events with no handler.
-				if (mouseHandler == null)
-					continue;
+			// Don't process events if there's no handler.
+			if (keyboardHandler == null)
+				break;
+			
+			int key = backend.getEventKey();
+			
+			// The key state is true if the key is down.
+			if (backend.getEventKeyState()) {
+				char character = backend.getEventCharacter();
 				
-				int button = Mouse.getEventButton();
-				int x = Mouse.getEventX(), y = Mouse.getEventY();
+				// Store timestamp in the keyboard array and fire event.
+				keyboard[key] = now;
+				keyboardChars[key] = character;
+				fire(InputDispatcher.EVENT_KEY_DOWN, key, character, 0, NODATA);
+			}else{
+				// Fire the standard key up event.
+				fire(InputDispatcher.EVENT_KEY_UP, key, keyboardChars[key], 0, NODATA);
 				
-				// Mouse events use bottom-left as (0, 0).
-				y = height - y;
+				// Fire pressed event if necessary.
+				long data = keyboard[key];
+				if (data != NODATA)
+					fire(InputDispatcher.EVENT_KEY_PRESSED, key, keyboardChars[key], 0, now - data);
 				
-				// Detect mouse movement.
-				if (button < 0) {
-					mouseHandler.onMove(new MouseEvent(-1, 0, x, y));
-					continue;
+				// Reset keyboard array.
+				keyboard[key] = NODATA;
+			}
+		}
+		
+		// Dispatch mouse events.
+		while (backend.nextMouse()) {
+			events = true;
+			
+			// Don't process events with no handler.
+			if (mouseHandler == null)
+				continue;
+			
+			int button = backend.getEventButton();
+			int x = backend.getEventX(), y = backend.getEventY();
+			
+			// Mouse events use bottom-left as (0, 0).
+			y = height - y;
+			
+			// Detect mouse movement.
+			if (button < 0) {
+				fire(InputDispatcher.EVENT_MOVE, -1, x, y, 0);
+				continue;
+			}
+			
+			long data = mouse[button];
+			
+			if (backend.getEventButtonState()) {
+				// Ignore button presses if they're already registered as
+				// having been pressed.
+				if (data == NODATA) {
+					mouse[button] = now;
+					fire(InputDispatcher.EVENT_BUTTON_DOWN, button, x, y, NODATA);
 				}
+			}else{
+				fire(InputDispatcher.EVENT_BUTTON_UP, button, x, y, NODATA);
 				
-				long data = mouse[button];
-				
-				if (Mouse.getEventButtonState()) {
-					// Ignore button presses if they're already registered as
-					// having been pressed.
-					if (data == NODATA) {
-						mouse[button] = now;
-						mouseHandler.onButtonDown(new MouseEvent(button, NODATA, x, y));
-					}
-				}else{
-					mouseHandler.onButtonUp(new MouseEvent(button, NODATA, x, y));
-					
-					// Fire the click event.
-					if (data != NODATA) {
-						mouse[button] = NODATA;
-						mouseHandler.onButtonClicked(new MouseEvent(button, now - data, x, y));
-					}
+				// Fire the click event.
+				if (data != NODATA) {
+					mouse[button] = NODATA;
+					fire(InputDispatcher.EVENT_BUTTON_CLICKED, button, x, y, now - data);
 				}
 			}
-			
-			if (fps > 0)
-				Display.sync(fps);
 		}
+		
+		// Have the input consumer pick up this frame's events.
+		InputQueue input = this.input;
+		Executor inputExecutor = this.inputExecutor;
+		if (input != null && inputExecutor != null && !input.isEmpty() && inputScheduled.compareAndSet(false, true))
+			inputExecutor.execute(inputDrain);
+		
+		return events;
+	}
+	
+	/**
+	 * Waits between frames while rendering on demand, polling the display at the frame rate
+	 * so input is picked up as quickly as when drawing. Returns true once something asks
+	 * for a frame.
+	 */
+	private boolean idle(long now) {
+		backend.processMessages();
+		
+		boolean render = dispatchInput(now) | requested | queue.getDepth() > 0 | backend.isDirty();
+		
+		// Resizes are picked up, and handled, by the frame drawn for them.
+		render |= backend.getWidth() != width || backend.getHeight() != height;
+		
+		// So is coming back to the foreground.
+		render |= !foreground && isForeground();
+		
+		if (!render) {
+			int fps = getSyncFps();
+			LockSupport.parkNanos(this, 1000000000L / (fps > 0 ? fps : 60));
+		}
+		
+		return render;
+	}
+	
+	/**
+	 * Returns the frame rate to keep to, the background rate while the display is hidden
+	 * or unfocused.
+	 */
+	private int getSyncFps() {
+		foreground = isForeground();
+		
+		if (foreground)
+			return fps;
+		
+		return fps > 0 ? Math.min(fps, backgroundFps) : backgroundFps;
+	}
+	
+	private boolean isForeground() {
+		return backend.isVisible() && backend.isActive();
+	}
+	
+	private void fire(int type, int code, int x, int y, long duration) {
+		InputQueue input = this.input;
+		
+		if (input != null)
+			input.push(type, code, x, y, duration);
+		else
+			dispatcher.dispatch(keyboardHandler, mouseHandler, type, code, x, y, duration);
 	}
 	
 	private void setupMatrix() {
 		int widthOld = width;
 		int heightOld = height;
 		
-		GL11.glMatrixMode(GL11.GL_PROJECTION);
-		GL11.glLoadIdentity();
-		GL11.glOrtho(0, width = Display.getWidth(), height = Display.getHeight(), 0, -1, 1);
-		GL11.glViewport(0, 0, width, height);
-		GL11.glMatrixMode(GL11.GL_MODELVIEW);
-
-		GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
-		
-		// Enable 2D textures.
-		GL11.glEnable(GL11.GL_TEXTURE_2D);
-		GL11.glEnable(GL11.GL_BLEND);
+		backend.setup(width = backend.getWidth(), height = backend.getHeight());
 		
 		// Inform the handler if the window was resized.
 		if ((width != widthOld || height != heightOld) && handler != null)
@@ -224,7 +395,75 @@ public class Window {
 	 * {@link Thread} on the next frame.
 	 */
 	public void queue(Runnable runnable) {
-		queue.add(runnable);
+		queue(runnable, PRIORITY_NORMAL);
+	}
+	
+	/**
+	 * Adds the given {@link Runnable} to the list of tasks to be run from the rendering
+	 * {@link Thread}. Higher priority tasks are always run before lower priority ones.
+	 */
+	public void queue(Runnable runnable, int priority) {
+		queue.add(runnable, priority);
+		
+		if (onDemand)
+			LockSupport.unpark(thread);
+	}
+	
+	/**
+	 * Runs the given {@link Runnable} from the rendering {@link Thread}, the same as
+	 * {@link #queue(Runnable)}.
+	 */
+	@Override
+	public void execute(Runnable runnable) {
+		queue(runnable, PRIORITY_NORMAL);
+	}
+	
+	/**
+	 * Calls the given {@link Callable} from the rendering {@link Thread}, returning a
+	 * {@link Future} completed once it has been called. This lets other threads wait on
+	 * results that need the GL context.
+	 */
+	public <T> Future<T> submit(Callable<T> callable) {
+		return submit(callable, PRIORITY_NORMAL);
+	}
+	
+	public <T> Future<T> submit(Callable<T> callable, int priority) {
+		FutureTask<T> task = new FutureTask<>(callable);
+		queue(task, priority);
+		return task;
+	}
+	
+	/**
+	 * Sets how long, in nanoseconds, may be spent running queued tasks each frame. Tasks
+	 * left over are run on the following frames. Zero or less runs every task each frame.
+	 */
+	public void setQueueBudget(long nanos) {
+		queueBudget = nanos;
+	}
+	
+	public long getQueueBudget() {
+		return queueBudget;
+	}
+	
+	/**
+	 * Returns the number of tasks waiting to be run.
+	 */
+	public int getQueueDepth() {
+		return queue.getDepth();
+	}
+	
+	/**
+	 * Returns the time spent running queued tasks on the last frame, in nanoseconds.
+	 */
+	public long getQueueTime() {
+		return queue.getTime();
+	}
+	
+	/**
+	 * Returns the number of queued tasks run on the last frame.
+	 */
+	public int getQueueTasks() {
+		return queue.getTasks();
 	}
 	
 	public void close() {
@@ -235,11 +474,11 @@ public class Window {
 		this.renderer = renderer;
 		
 		if (renderer != null)
-			Boothy.log(Boothy.LOG_DEBUG, "Renderer: " + renderer.getClass().getName());
+			Boothy.logf(Boothy.LOG_DEBUG, "Renderer: {}", renderer.getClass().getName());
 	}
 	
 	public boolean setFullscreen(final boolean fullscreen) {
-		if (!Display.getDisplayMode().isFullscreenCapable())
+		if (!backend.isFullscreenCapable())
 			return false;
 		
 		queue(new Runnable() {
@@ -247,13 +486,13 @@ public class Window {
 			@Override
 			public void run() {
 				try {
-					Display.setFullscreen(fullscreen);
+					backend.setFullscreen(fullscreen);
 				}catch (LWJGLException e) {
 					Boothy.log(Boothy.LOG_ERROR, "Failed to change fullscreen status!");
 				}
 			}
 			
-		});
+		}, PRIORITY_HIGH);
 		return true;
 	}
 	
@@ -262,10 +501,10 @@ public class Window {
 			
 			@Override
 			public void run() {
-				Display.setTitle(title);
+				backend.setTitle(title);
 			}
 			
-		});
+		}, PRIORITY_HIGH);
 	}
 	
 	public void setResolution(final Resolution resolution) {
@@ -275,16 +514,69 @@ public class Window {
 			public void run() {
 				try {
 					Window.this.resolution = resolution;
-					Display.setDisplayMode(resolution.getMode());
+					backend.setResolution(resolution);
 					setFullscreen(resolution.isFullscreenDefault());
 					
-					Boothy.log(Boothy.LOG_INFO, "Changed resolution to \"" + resolution.toString() + "\".");
+					Boothy.logf(Boothy.LOG_INFO, "Changed resolution to \"{}\".", resolution);
 				}catch (LWJGLException e) {
 					Boothy.log(Boothy.LOG_ERROR, "Failed to change resolution!");
 				}
 			}
 			
-		});
+		}, PRIORITY_HIGH);
+	}
+	
+	/**
+	 * Enables or disables routing every {@link net.alexmack.boothy.textures.Texture} draw
+	 * made by the {@link Renderer} through a {@link SpriteBatch}. Takes effect on the next
+	 * frame.
+	 */
+	public void setBatching(boolean batching) {
+		if (batching == (batch != null))
+			return;
+		
+		batch = batching ? new SpriteBatch() : null;
+	}
+	
+	/**
+	 * Runs the {@link Updater} at a fixed rate of updates per second, independent of the
+	 * frame rate, from the rendering {@link Thread} before each frame. Renderers can use
+	 * {@link #getInterpolation()} to draw between updates. Null stops updating.
+	 */
+	public void setUpdater(Updater updater, int rate) {
+		setUpdater(updater, rate, false);
+	}
+	
+	/**
+	 * As {@link #setUpdater(Updater, int)}, but if threaded is true the updater runs on its
+	 * own {@link Thread}; use a {@link StateBuffer} to hand state to the renderer.
+	 */
+	public synchronized void setUpdater(Updater updater, int rate, boolean threaded) {
+		if (updates != null)
+			updates.stop();
+		
+		if (updater == null) {
+			updates = null;
+			return;
+		}
+		
+		UpdateLoop loop = new UpdateLoop(this, updater, rate, maxTicks, threaded);
+		loop.start();
+		updates = loop;
+	}
+	
+	/**
+	 * Sets the most updates that may be run to catch up at once. Time beyond that is
+	 * dropped, so a slow frame can't snowball into slower ones.
+	 */
+	public synchronized void setMaxTicks(int maxTicks) {
+		if (maxTicks <= 0)
+			throw new IllegalArgumentException("At least one tick must be allowed!");
+		
+		this.maxTicks = maxTicks;
+		
+		if (updates != null)
+			updates.setMaxTicks(maxTicks);
 	}
 	
 	public void setKeyboardHandler(KeyboardHandler handler) {
@@ -295,6 +587,45 @@ public class Window {
 		mouseHandler = handler;
 	}
 	
+	/**
+	 * Sets whether input events are reused between callbacks rather than created for each
+	 * one. Reused events are only valid during the callback they're passed to.
+	 * 
+	 * @see InputDispatcher
+	 */
+	public void setReuseEvents(boolean reuse) {
+		dispatcher.setReuse(reuse);
+	}
+	
+	/**
+	 * Moves input dispatch off the rendering {@link Thread}. Events are queued as the window
+	 * polls them and the given {@link Executor} (for instance a single thread executor)
+	 * dispatches them to the handlers, one drain at a time. Null dispatches input from the
+	 * rendering thread again.
+	 */
+	public void setInputExecutor(Executor executor) {
+		setInputExecutor(executor, InputQueue.DEFAULT_CAPACITY);
+	}
+	
+	public void setInputExecutor(Executor executor, int capacity) {
+		if (executor == null) {
+			input = null;
+			inputExecutor = null;
+			return;
+		}
+		
+		inputExecutor = executor;
+		input = new InputQueue(capacity);
+	}
+	
+	/**
+	 * Returns the queue used to hand input to the input executor, for its counters, or null
+	 * if input is dispatched from the rendering {@link Thread}.
+	 */
+	public InputQueue getInputQueue() {
+		return input;
+	}
+	
 	public void setHandler(WindowHandler handler) {
 		this.handler = handler;
 	}
@@ -303,8 +634,47 @@ public class Window {
 		this.fps = fps;
 	}
 	
+	/**
+	 * Sets the frame rate kept to while the display is minimized or unfocused, so hidden
+	 * windows don't draw at full speed.
+	 */
+	public void setBackgroundFps(int fps) {
+		if (fps <= 0)
+			throw new IllegalArgumentException("The background frame rate must be positive!");
+		
+		backgroundFps = fps;
+	}
+	
+	public int getBackgroundFps() {
+		return backgroundFps;
+	}
+	
+	/**
+	 * Enables or disables rendering on demand. While enabled a frame is only drawn after
+	 * input, a queued task, a resize or a call to {@link #requestRender()}, and the window
+	 * otherwise sits idle, polling for input at the frame rate. Anything animated, such as
+	 * a non-threaded {@link Updater}, must request the frames it needs.
+	 */
+	public void setOnDemand(boolean onDemand) {
+		this.onDemand = onDemand;
+		requestRender();
+	}
+	
+	public boolean isOnDemand() {
+		return onDemand;
+	}
+	
+	/**
+	 * Asks for another frame to be drawn when rendering on demand. Safe to call from any
+	 * {@link Thread}, and requests made before the frame is drawn share it.
+	 */
+	public void requestRender() {
+		requested = true;
+		LockSupport.unpark(thread);
+	}
+	
 	public void setResizeable(boolean resizeable) {
-		Display.setResizable(resizeable);
+		backend.setResizable(resizeable);
 	}
 	
 	public int getWidth() {
@@ -315,6 +685,91 @@ public class Window {
 		return height;
 	}
 	
+	/**
+	 * Returns the {@link SpriteBatch} used to render frames, or null if batching is off.
+	 */
+	public SpriteBatch getBatch() {
+		return batch;
+	}
+	
+	/**
+	 * Returns the number of updates run by the current {@link Updater}.
+	 */
+	public long getTick() {
+		UpdateLoop updates = this.updates;
+		return updates != null ? updates.getTicks() : 0;
+	}
+	
+	/**
+	 * Returns how far through the time between the last update and the next the current
+	 * frame is, from zero to one. This is always one with no {@link Updater}.
+	 */
+	public float getInterpolation() {
+		UpdateLoop updates = this.updates;
+		return updates != null ? updates.getInterpolation() : 1;
+	}
+	
+	/**
+	 * As {@link #getInterpolation()}, but measured from when the states last latched by the
+	 * {@link StateBuffer} were published, so that it matches them even if the updater has
+	 * published since.
+	 */
+	public float getInterpolation(StateBuffer<?> buffer) {
+		UpdateLoop updates = this.updates;
+		return updates != null ? updates.getInterpolation(buffer.getTime()) : 1;
+	}
+	
+	/**
+	 * Enables or disables timing each phase of every frame. While disabled the timings
+	 * cost next to nothing. Enabling them again forgets the old frames at the start of the
+	 * next frame.
+	 */
+	public synchronized void setFrameStats(boolean enabled) {
+		if (enabled == (stats != null))
+			return;
+		
+		// The same statistics are kept throughout, so anything registered with them stays live.
+		if (enabled) {
+			if (frameStats == null)
+				frameStats = new FrameStats();
+			else
+				resetStats = true;
+		}
+		
+		stats = enabled ? frameStats : null;
+	}
+	
+	/**
+	 * Returns the timings of recent frames, or null if frame timing is disabled.
+	 */
+	public FrameStats getFrameStats() {
+		return stats;
+	}
+	
+	/**
+	 * Returns when the display was created, from {@link System#nanoTime()}, or zero if it
+	 * hasn't been yet.
+	 */
+	public long getCreatedTime() {
+		return created;
+	}
+	
+	/**
+	 * Returns when the first frame was shown, from {@link System#nanoTime()}, or zero if
+	 * it hasn't been yet.
+	 */
+	public long getFirstFrameTime() {
+		return shown;
+	}
+	
+	/**
+	 * Waits for the first frame to be shown, returning false if it wasn't within the
+	 * timeout or the window stopped before showing one.
+	 */
+	public boolean awaitFirstFrame(long timeout, TimeUnit unit) throws InterruptedException {
+		return firstFrame.await(timeout, unit) && shown != 0;
+	}
+	
 	public long getFrame() {
 		return frame;
 	}
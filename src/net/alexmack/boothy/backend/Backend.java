@@ -0,0 +1,188 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy.backend;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import org.lwjgl.LWJGLException;
+
+import net.alexmack.boothy.Resolution;
+
+/**
+ * Everything Boothy asks of the display, input devices and GL, so the same code can run
+ * against a real display or none at all. Apart from {@link #isFullscreenCapable()} and
+ * {@link #setResizable(boolean)}, every method is only called from the rendering
+ * {@link Thread}. The backend in use is chosen with
+ * {@link net.alexmack.boothy.Boothy#setBackend(Backend)}.
+ */
+public interface Backend {
+	
+	/**
+	 * Blending for ordinary drawing, the default set up by {@link #setup(int, int)}.
+	 */
+	public static final int BLEND_ALPHA = 0;
+	
+	/**
+	 * Blending for drawing into a transparent texture: colours blend as with
+	 * {@link #BLEND_ALPHA}, but alpha builds up, leaving the texture premultiplied.
+	 */
+	public static final int BLEND_SEPARATE_ALPHA = 1;
+	
+	/**
+	 * Blending for drawing textures whose colours are premultiplied by their alpha.
+	 */
+	public static final int BLEND_PREMULTIPLIED = 2;
+	
+	/**
+	 * Opens the display at the given resolution, along with the keyboard and mouse.
+	 */
+	public void create(Resolution resolution, String title) throws LWJGLException;
+	
+	public void destroy();
+	
+	public boolean isCloseRequested();
+	
+	/**
+	 * Shows the frame just drawn and polls the input devices.
+	 */
+	public void update();
+	
+	/**
+	 * Polls the display and input devices without showing a frame.
+	 */
+	public void processMessages();
+	
+	/**
+	 * Returns false while the display is minimized or otherwise can't be seen.
+	 */
+	public boolean isVisible();
+	
+	/**
+	 * Returns false while the display doesn't have the focus.
+	 */
+	public boolean isActive();
+	
+	/**
+	 * Returns true if the display has been damaged and needs drawing again.
+	 */
+	public boolean isDirty();
+	
+	/**
+	 * Waits as long as needed to keep to the given frame rate.
+	 */
+	public void sync(int fps);
+	
+	public int getWidth();
+	
+	public int getHeight();
+	
+	public boolean isFullscreenCapable();
+	
+	public void setFullscreen(boolean fullscreen) throws LWJGLException;
+	
+	public void setTitle(String title);
+	
+	public void setResolution(Resolution resolution) throws LWJGLException;
+	
+	public void setResizable(boolean resizable);
+	
+	public int getMouseButtonCount();
+	
+	/**
+	 * Moves on to the next keyboard event, returning false if there are none left.
+	 */
+	public boolean nextKey();
+	
+	public int getEventKey();
+	
+	public char getEventCharacter();
+	
+	public boolean getEventKeyState();
+	
+	/**
+	 * Moves on to the next mouse event, returning false if there are none left.
+	 */
+	public boolean nextMouse();
+	
+	public int getEventButton();
+	
+	public boolean getEventButtonState();
+	
+	public int getEventX();
+	
+	public int getEventY();
+	
+	/**
+	 * Sets up a 2D projection of the given size, with textures and blending enabled.
+	 */
+	public void setup(int width, int height);
+	
+	public void clear();
+	
+	/**
+	 * Creates a texture from pixels in the given GL format and type, returning its name.
+	 */
+	public int createTexture(int width, int height, ByteBuffer pixels, int format, int type, int alignment);
+	
+	/**
+	 * Replaces an area of a texture with pixels in the given GL format and type.
+	 */
+	public void updateTexture(int texture, int x, int y, int width, int height, ByteBuffer pixels, int format, int type, int alignment);
+	
+	public void deleteTexture(int texture);
+	
+	/**
+	 * Returns true if textures can be drawn to through framebuffers.
+	 */
+	public boolean isFramebufferCapable();
+	
+	/**
+	 * Creates a framebuffer drawing to the texture, returning its name, or 0 if GL can't
+	 * draw to it. The display is left bound.
+	 */
+	public int createFramebuffer(int texture);
+	
+	/**
+	 * Draws to the framebuffer from now on, or to the display if it's 0.
+	 */
+	public void bindFramebuffer(int framebuffer);
+	
+	public void deleteFramebuffer(int framebuffer);
+	
+	public void bindTexture(int texture);
+	
+	public void color(float r, float g, float b, float a);
+	
+	/**
+	 * Sets how drawing is blended, as one of the BLEND constants.
+	 */
+	public void blend(int mode);
+	
+	/**
+	 * Draws a textured quad using the coordinates c, ordered by the translation t.
+	 */
+	public void drawQuad(float x, float y, float w, float h, float[] c, int[] t);
+	
+	/**
+	 * Draws quads from views of a buffer in the
+	 * {@link net.alexmack.boothy.textures.SpriteBatch} layout, starting at a position and
+	 * a texture coordinate respectively.
+	 */
+	public void drawQuads(FloatBuffer vertices, FloatBuffer coordinates, int quads);
+	
+	/**
+	 * Draws untextured triangles from views of a buffer in the
+	 * {@link net.alexmack.boothy.textures.ShapeBatch} layout, starting at a position and a
+	 * colour respectively. The current colour and texturing are left as they were.
+	 */
+	public void drawTriangles(FloatBuffer vertices, ByteBuffer colors, int vertexCount);
+	
+	public void pushMatrix();
+	
+	public void translate(float x, float y);
+	
+	public void popMatrix();
+
+}
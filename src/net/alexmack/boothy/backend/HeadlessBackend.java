@@ -0,0 +1,497 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy.backend;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+import net.alexmack.boothy.Resolution;
+
+/**
+ * A {@link Backend} with no display or GL behind it, for running Boothy on machines
+ * without either. Draws and uploads are only counted, and optionally recorded in a
+ * bounded log of commands, so the CPU side of rendering can be measured on its own. There
+ * is never any input, and the display is only closed by {@link #close()}.
+ */
+public class HeadlessBackend implements Backend {
+	
+	private volatile int width = 0, height = 0;
+	private volatile boolean closeRequested = false;
+	private volatile boolean throttled = true;
+	private volatile boolean visible = true, active = true;
+	private long nextFrame = 0;
+	
+	private int textureNames = 0, framebufferNames = 0;
+	private int bound = 0, target = 0, blending = BLEND_ALPHA;
+	
+	// Written only by the rendering thread.
+	private volatile long frames = 0, drawCalls = 0, quads = 0, triangles = 0;
+	private volatile long textures = 0, textureBytes = 0, textureUpdates = 0, textureDeletes = 0;
+	private volatile long binds = 0, colors = 0;
+	private volatile long framebuffers = 0, framebufferBinds = 0;
+	
+	private final ArrayDeque<String> log = new ArrayDeque<>();
+	private volatile int logCapacity = 0;
+	
+	@Override
+	public void create(Resolution resolution, String title) {
+		width = resolution.getWidth();
+		height = resolution.getHeight();
+		closeRequested = false;
+		
+		log("create " + width + "x" + height + " \"" + title + "\"");
+	}
+	
+	@Override
+	public void destroy() {
+		log("destroy");
+	}
+	
+	/**
+	 * Has the display report that it's been closed, ending the window's loop.
+	 */
+	public void close() {
+		closeRequested = true;
+	}
+	
+	@Override
+	public boolean isCloseRequested() {
+		return closeRequested;
+	}
+	
+	@Override
+	public void update() {
+		frames++;
+		
+		if (logCapacity > 0)
+			log("update");
+	}
+	
+	@Override
+	public void processMessages() {
+	}
+	
+	@Override
+	public boolean isVisible() {
+		return visible;
+	}
+	
+	/**
+	 * Sets whether the display reports being visible, as if it had been minimized.
+	 */
+	public void setVisible(boolean visible) {
+		this.visible = visible;
+	}
+	
+	@Override
+	public boolean isActive() {
+		return active;
+	}
+	
+	/**
+	 * Sets whether the display reports having the focus.
+	 */
+	public void setActive(boolean active) {
+		this.active = active;
+	}
+	
+	@Override
+	public boolean isDirty() {
+		return false;
+	}
+	
+	@Override
+	public void sync(int fps) {
+		if (!throttled)
+			return;
+		
+		// Keep to the frame rate the same way the real display does, without drifting.
+		long now = System.nanoTime();
+		long frame = 1000000000L / fps;
+		
+		if (nextFrame - now > 0)
+			LockSupport.parkNanos(nextFrame - now);
+		
+		nextFrame = Math.max(nextFrame + frame, now);
+	}
+	
+	/**
+	 * Sets whether {@link #sync(int)} waits to keep to the frame rate, true by default.
+	 * Unthrottled, the window draws frames as fast as it can.
+	 */
+	public void setThrottled(boolean throttled) {
+		this.throttled = throttled;
+	}
+	
+	public boolean isThrottled() {
+		return throttled;
+	}
+	
+	@Override
+	public int getWidth() {
+		return width;
+	}
+	
+	@Override
+	public int getHeight() {
+		return height;
+	}
+	
+	@Override
+	public boolean isFullscreenCapable() {
+		return false;
+	}
+	
+	@Override
+	public void setFullscreen(boolean fullscreen) {
+	}
+	
+	@Override
+	public void setTitle(String title) {
+		log("title \"" + title + "\"");
+	}
+	
+	@Override
+	public void setResolution(Resolution resolution) {
+		width = resolution.getWidth();
+		height = resolution.getHeight();
+		
+		log("resolution " + width + "x" + height);
+	}
+	
+	@Override
+	public void setResizable(boolean resizable) {
+	}
+	
+	@Override
+	public int getMouseButtonCount() {
+		return 3;
+	}
+	
+	@Override
+	public boolean nextKey() {
+		return false;
+	}
+	
+	@Override
+	public int getEventKey() {
+		return 0;
+	}
+	
+	@Override
+	public char getEventCharacter() {
+		return 0;
+	}
+	
+	@Override
+	public boolean getEventKeyState() {
+		return false;
+	}
+	
+	@Override
+	public boolean nextMouse() {
+		return false;
+	}
+	
+	@Override
+	public int getEventButton() {
+		return -1;
+	}
+	
+	@Override
+	public boolean getEventButtonState() {
+		return false;
+	}
+	
+	@Override
+	public int getEventX() {
+		return 0;
+	}
+	
+	@Override
+	public int getEventY() {
+		return 0;
+	}
+	
+	@Override
+	public void setup(int width, int height) {
+		blending = BLEND_ALPHA;
+	}
+	
+	@Override
+	public void clear() {
+	}
+	
+	@Override
+	public int createTexture(int width, int height, ByteBuffer pixels, int format, int type, int alignment) {
+		int texture = ++textureNames;
+		bound = texture;
+		
+		// Textures made to be drawn to have no pixels to begin with.
+		int bytes = pixels != null ? pixels.remaining() : 0;
+		
+		textures++;
+		textureBytes += bytes;
+		
+		if (logCapacity > 0)
+			log("createTexture " + texture + " " + width + "x" + height + " " + bytes + "B");
+		
+		return texture;
+	}
+	
+	@Override
+	public void updateTexture(int texture, int x, int y, int width, int height, ByteBuffer pixels, int format, int type, int alignment) {
+		bound = texture;
+		
+		textureUpdates++;
+		textureBytes += pixels.remaining();
+		
+		if (logCapacity > 0)
+			log("updateTexture " + texture + " " + x + "," + y + " " + width + "x" + height + " " + pixels.remaining() + "B");
+	}
+	
+	@Override
+	public void deleteTexture(int texture) {
+		if (bound == texture)
+			bound = 0;
+		
+		textureDeletes++;
+		
+		if (logCapacity > 0)
+			log("deleteTexture " + texture);
+	}
+	
+	@Override
+	public boolean isFramebufferCapable() {
+		return true;
+	}
+	
+	@Override
+	public int createFramebuffer(int texture) {
+		int framebuffer = ++framebufferNames;
+		framebuffers++;
+		
+		if (logCapacity > 0)
+			log("createFramebuffer " + framebuffer + " " + texture);
+		
+		return framebuffer;
+	}
+	
+	@Override
+	public void bindFramebuffer(int framebuffer) {
+		target = framebuffer;
+		framebufferBinds++;
+		
+		if (logCapacity > 0)
+			log("bindFramebuffer " + framebuffer);
+	}
+	
+	@Override
+	public void deleteFramebuffer(int framebuffer) {
+		if (target == framebuffer)
+			target = 0;
+		
+		if (logCapacity > 0)
+			log("deleteFramebuffer " + framebuffer);
+	}
+	
+	@Override
+	public void bindTexture(int texture) {
+		bound = texture;
+		binds++;
+	}
+	
+	@Override
+	public void color(float r, float g, float b, float a) {
+		colors++;
+		
+		if (logCapacity > 0)
+			log("color " + r + " " + g + " " + b + " " + a);
+	}
+	
+	@Override
+	public void blend(int mode) {
+		if (mode < BLEND_ALPHA || mode > BLEND_PREMULTIPLIED)
+			throw new IllegalArgumentException("Unknown blend mode " + mode + "!");
+		
+		blending = mode;
+		
+		if (logCapacity > 0)
+			log("blend " + mode);
+	}
+	
+	@Override
+	public void drawQuad(float x, float y, float w, float h, float[] c, int[] t) {
+		drawCalls++;
+		quads++;
+		
+		if (logCapacity > 0)
+			log("drawQuad " + bound + " " + x + "," + y + " " + w + "x" + h);
+	}
+	
+	@Override
+	public void drawQuads(FloatBuffer vertices, FloatBuffer coordinates, int quads) {
+		drawCalls++;
+		this.quads += quads;
+		
+		if (logCapacity > 0)
+			log("drawQuads " + bound + " " + quads);
+	}
+	
+	@Override
+	public void drawTriangles(FloatBuffer vertices, ByteBuffer colors, int vertexCount) {
+		drawCalls++;
+		triangles += vertexCount / 3;
+		
+		if (logCapacity > 0)
+			log("drawTriangles " + vertexCount / 3);
+	}
+	
+	@Override
+	public void pushMatrix() {
+	}
+	
+	@Override
+	public void translate(float x, float y) {
+	}
+	
+	@Override
+	public void popMatrix() {
+	}
+	
+	/**
+	 * Returns the number of frames shown.
+	 */
+	public long getFrames() {
+		return frames;
+	}
+	
+	/**
+	 * Returns the number of draw calls issued, each of which may have drawn many quads.
+	 */
+	public long getDrawCalls() {
+		return drawCalls;
+	}
+	
+	public long getQuads() {
+		return quads;
+	}
+	
+	public long getTriangles() {
+		return triangles;
+	}
+	
+	/**
+	 * Returns the number of textures created.
+	 */
+	public long getTextures() {
+		return textures;
+	}
+	
+	public long getTextureUpdates() {
+		return textureUpdates;
+	}
+	
+	public long getTextureDeletes() {
+		return textureDeletes;
+	}
+	
+	/**
+	 * Returns the number of bytes of pixels uploaded, by both creating and updating
+	 * textures.
+	 */
+	public long getTextureBytes() {
+		return textureBytes;
+	}
+	
+	public long getBinds() {
+		return binds;
+	}
+	
+	public long getColors() {
+		return colors;
+	}
+	
+	/**
+	 * Returns the number of framebuffers created.
+	 */
+	public long getFramebuffers() {
+		return framebuffers;
+	}
+	
+	public long getFramebufferBinds() {
+		return framebufferBinds;
+	}
+	
+	/**
+	 * Returns the blend mode drawing currently uses.
+	 */
+	public int getBlending() {
+		return blending;
+	}
+	
+	/**
+	 * Returns the framebuffer being drawn to, or 0 for the display.
+	 */
+	public int getFramebuffer() {
+		return target;
+	}
+	
+	/**
+	 * Zeroes every counter. Counts taken while the rendering thread is running may be a
+	 * frame out either side.
+	 */
+	public void reset() {
+		frames = drawCalls = quads = triangles = 0;
+		textures = textureBytes = textureUpdates = textureDeletes = 0;
+		binds = colors = 0;
+		framebuffers = framebufferBinds = 0;
+	}
+	
+	/**
+	 * Keeps a log of the most recent commands, up to the given number of them, or none at
+	 * all if it's zero, the default. Logging builds a string for every command, so it
+	 * costs far more than the commands themselves.
+	 */
+	public void setLogCapacity(int capacity) {
+		synchronized (log) {
+			logCapacity = Math.max(0, capacity);
+			
+			while (log.size() > logCapacity)
+				log.removeFirst();
+		}
+	}
+	
+	public int getLogCapacity() {
+		return logCapacity;
+	}
+	
+	/**
+	 * Returns the logged commands, oldest first, and empties the log.
+	 */
+	public List<String> drainLog() {
+		synchronized (log) {
+			List<String> commands = new ArrayList<>(log);
+			log.clear();
+			return commands;
+		}
+	}
+	
+	private void log(String command) {
+		synchronized (log) {
+			if (logCapacity == 0)
+				return;
+			
+			if (log.size() == logCapacity)
+				log.removeFirst();
+			
+			log.addLast(command);
+		}
+	}
+
+}
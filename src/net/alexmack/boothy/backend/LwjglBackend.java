@@ -0,0 +1,355 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy.backend;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import org.lwjgl.LWJGLException;
+import org.lwjgl.input.Keyboard;
+import org.lwjgl.input.Mouse;
+import org.lwjgl.opengl.Display;
+import org.lwjgl.opengl.EXTFramebufferObject;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL14;
+import org.lwjgl.opengl.GLContext;
+import org.lwjgl.opengl.PixelFormat;
+
+import net.alexmack.boothy.Resolution;
+import net.alexmack.boothy.textures.ShapeBatch;
+import net.alexmack.boothy.textures.SpriteBatch;
+
+/**
+ * The default {@link Backend}, drawing to an LWJGL {@link Display}.
+ */
+public class LwjglBackend implements Backend {
+	
+	private static final int PIXEL_FORMAT_INTERNAL = GL11.GL_RGBA8;
+	private static final int VERTEX_STRIDE = SpriteBatch.VERTEX_FLOATS * 4;
+	private static final int SHAPE_STRIDE = ShapeBatch.VERTEX_WORDS * 4;
+	
+	@Override
+	public void create(Resolution resolution, String title) throws LWJGLException {
+		Display.setDisplayMode(resolution.getMode());
+		if (resolution.isFullscreenDefault())
+			Display.setFullscreen(true);
+		
+		Display.setTitle(title);
+		Display.setResizable(true);
+		
+		// Create a display with the default PixelFormat.
+		Display.create(new PixelFormat());
+		// Create the keyboard and mouse.
+		Keyboard.create();
+		Mouse.create();
+	}
+	
+	@Override
+	public void destroy() {
+		Display.destroy();
+	}
+	
+	@Override
+	public boolean isCloseRequested() {
+		return Display.isCloseRequested();
+	}
+	
+	@Override
+	public void update() {
+		Display.update();
+	}
+	
+	@Override
+	public void processMessages() {
+		Display.processMessages();
+	}
+	
+	@Override
+	public boolean isVisible() {
+		return Display.isVisible();
+	}
+	
+	@Override
+	public boolean isActive() {
+		return Display.isActive();
+	}
+	
+	@Override
+	public boolean isDirty() {
+		return Display.isDirty();
+	}
+	
+	@Override
+	public void sync(int fps) {
+		Display.sync(fps);
+	}
+	
+	@Override
+	public int getWidth() {
+		return Display.getWidth();
+	}
+	
+	@Override
+	public int getHeight() {
+		return Display.getHeight();
+	}
+	
+	@Override
+	public boolean isFullscreenCapable() {
+		return Display.getDisplayMode().isFullscreenCapable();
+	}
+	
+	@Override
+	public void setFullscreen(boolean fullscreen) throws LWJGLException {
+		Display.setFullscreen(fullscreen);
+	}
+	
+	@Override
+	public void setTitle(String title) {
+		Display.setTitle(title);
+	}
+	
+	@Override
+	public void setResolution(Resolution resolution) throws LWJGLException {
+		Display.setDisplayMode(resolution.getMode());
+	}
+	
+	@Override
+	public void setResizable(boolean resizable) {
+		Display.setResizable(resizable);
+	}
+	
+	@Override
+	public int getMouseButtonCount() {
+		return Mouse.getButtonCount();
+	}
+	
+	@Override
+	public boolean nextKey() {
+		return Keyboard.next();
+	}
+	
+	@Override
+	public int getEventKey() {
+		return Keyboard.getEventKey();
+	}
+	
+	@Override
+	public char getEventCharacter() {
+		return Keyboard.getEventCharacter();
+	}
+	
+	@Override
+	public boolean getEventKeyState() {
+		return Keyboard.getEventKeyState();
+	}
+	
+	@Override
+	public boolean nextMouse() {
+		return Mouse.next();
+	}
+	
+	@Override
+	public int getEventButton() {
+		return Mouse.getEventButton();
+	}
+	
+	@Override
+	public boolean getEventButtonState() {
+		return Mouse.getEventButtonState();
+	}
+	
+	@Override
+	public int getEventX() {
+		return Mouse.getEventX();
+	}
+	
+	@Override
+	public int getEventY() {
+		return Mouse.getEventY();
+	}
+	
+	@Override
+	public void setup(int width, int height) {
+		GL11.glMatrixMode(GL11.GL_PROJECTION);
+		GL11.glLoadIdentity();
+		GL11.glOrtho(0, width, height, 0, -1, 1);
+		GL11.glViewport(0, 0, width, height);
+		GL11.glMatrixMode(GL11.GL_MODELVIEW);
+		
+		GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+		
+		// Enable 2D textures.
+		GL11.glEnable(GL11.GL_TEXTURE_2D);
+		GL11.glEnable(GL11.GL_BLEND);
+	}
+	
+	@Override
+	public void clear() {
+		// Clear the color buffer. We won't clear the depth buffer as Boothy isn't meant for 3D.
+		GL11.glClear(GL11.GL_COLOR_BUFFER_BIT);
+	}
+	
+	@Override
+	public int createTexture(int width, int height, ByteBuffer pixels, int format, int type, int alignment) {
+		int texture = GL11.glGenTextures();
+		GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+		
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL12.GL_TEXTURE_BASE_LEVEL, 0);
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL12.GL_TEXTURE_MAX_LEVEL, 0);
+		
+		// Default nearest neighbour scaling.
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+		
+		GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, alignment);
+		GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, PIXEL_FORMAT_INTERNAL, width, height, 0, format, type, pixels);
+		GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 4);
+		
+		return texture;
+	}
+	
+	@Override
+	public void deleteTexture(int texture) {
+		GL11.glDeleteTextures(texture);
+	}
+	
+	@Override
+	public void updateTexture(int texture, int x, int y, int width, int height, ByteBuffer pixels, int format, int type, int alignment) {
+		GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+		GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, alignment);
+		GL11.glTexSubImage2D(GL11.GL_TEXTURE_2D, 0, x, y, width, height, format, type, pixels);
+		GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 4);
+	}
+	
+	@Override
+	public boolean isFramebufferCapable() {
+		return GLContext.getCapabilities().GL_EXT_framebuffer_object;
+	}
+	
+	@Override
+	public int createFramebuffer(int texture) {
+		int framebuffer = EXTFramebufferObject.glGenFramebuffersEXT();
+		EXTFramebufferObject.glBindFramebufferEXT(EXTFramebufferObject.GL_FRAMEBUFFER_EXT, framebuffer);
+		EXTFramebufferObject.glFramebufferTexture2DEXT(EXTFramebufferObject.GL_FRAMEBUFFER_EXT, EXTFramebufferObject.GL_COLOR_ATTACHMENT0_EXT, GL11.GL_TEXTURE_2D, texture, 0);
+		
+		int status = EXTFramebufferObject.glCheckFramebufferStatusEXT(EXTFramebufferObject.GL_FRAMEBUFFER_EXT);
+		EXTFramebufferObject.glBindFramebufferEXT(EXTFramebufferObject.GL_FRAMEBUFFER_EXT, 0);
+		
+		if (status != EXTFramebufferObject.GL_FRAMEBUFFER_COMPLETE_EXT) {
+			EXTFramebufferObject.glDeleteFramebuffersEXT(framebuffer);
+			return 0;
+		}
+		
+		return framebuffer;
+	}
+	
+	@Override
+	public void bindFramebuffer(int framebuffer) {
+		EXTFramebufferObject.glBindFramebufferEXT(EXTFramebufferObject.GL_FRAMEBUFFER_EXT, framebuffer);
+	}
+	
+	@Override
+	public void deleteFramebuffer(int framebuffer) {
+		EXTFramebufferObject.glDeleteFramebuffersEXT(framebuffer);
+	}
+	
+	@Override
+	public void bindTexture(int texture) {
+		GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+	}
+	
+	@Override
+	public void color(float r, float g, float b, float a) {
+		GL11.glColor4f(r, g, b, a);
+	}
+	
+	@Override
+	public void blend(int mode) {
+		switch (mode) {
+			case BLEND_ALPHA:
+				GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+				break;
+			case BLEND_SEPARATE_ALPHA:
+				GL14.glBlendFuncSeparate(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA, GL11.GL_ONE, GL11.GL_ONE_MINUS_SRC_ALPHA);
+				break;
+			case BLEND_PREMULTIPLIED:
+				GL11.glBlendFunc(GL11.GL_ONE, GL11.GL_ONE_MINUS_SRC_ALPHA);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown blend mode " + mode + "!");
+		}
+	}
+	
+	@Override
+	public void drawQuad(float x, float y, float w, float h, float[] c, int[] t) {
+		GL11.glBegin(GL11.GL_QUADS);
+		{
+			// First corner, top left when using standard translation.
+			GL11.glTexCoord2f(c[t[0]], c[t[1]]);
+			GL11.glVertex2f(x, y);
+			
+			// Second corner, top right when using standard translation.
+			GL11.glTexCoord2f(c[t[2]], c[t[3]]);
+			GL11.glVertex2f(x + w, y);
+			
+			// Third corner, bottom right when using standard translation.
+			GL11.glTexCoord2f(c[t[4]], c[t[5]]);
+			GL11.glVertex2f(x + w, y + h);
+			
+			// Fourth corner, bottom left when using standard translation.
+			GL11.glTexCoord2f(c[t[6]], c[t[7]]);
+			GL11.glVertex2f(x, y + h);
+		}
+		GL11.glEnd();
+	}
+	
+	@Override
+	public void drawQuads(FloatBuffer vertices, FloatBuffer coordinates, int quads) {
+		GL11.glEnableClientState(GL11.GL_VERTEX_ARRAY);
+		GL11.glEnableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+		
+		GL11.glVertexPointer(2, VERTEX_STRIDE, vertices);
+		GL11.glTexCoordPointer(2, VERTEX_STRIDE, coordinates);
+		GL11.glDrawArrays(GL11.GL_QUADS, 0, quads * 4);
+		
+		GL11.glDisableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+		GL11.glDisableClientState(GL11.GL_VERTEX_ARRAY);
+	}
+	
+	@Override
+	public void drawTriangles(FloatBuffer vertices, ByteBuffer colors, int vertexCount) {
+		// Colour arrays leave the current colour undefined, so it's saved along with texturing.
+		GL11.glPushAttrib(GL11.GL_CURRENT_BIT | GL11.GL_ENABLE_BIT);
+		GL11.glDisable(GL11.GL_TEXTURE_2D);
+		
+		GL11.glEnableClientState(GL11.GL_VERTEX_ARRAY);
+		GL11.glEnableClientState(GL11.GL_COLOR_ARRAY);
+		
+		GL11.glVertexPointer(2, SHAPE_STRIDE, vertices);
+		GL11.glColorPointer(4, true, SHAPE_STRIDE, colors);
+		GL11.glDrawArrays(GL11.GL_TRIANGLES, 0, vertexCount);
+		
+		GL11.glDisableClientState(GL11.GL_COLOR_ARRAY);
+		GL11.glDisableClientState(GL11.GL_VERTEX_ARRAY);
+		GL11.glPopAttrib();
+	}
+	
+	@Override
+	public void pushMatrix() {
+		GL11.glPushMatrix();
+	}
+	
+	@Override
+	public void translate(float x, float y) {
+		GL11.glTranslatef(x, y, 0);
+	}
+	
+	@Override
+	public void popMatrix() {
+		GL11.glPopMatrix();
+	}
+
+}
@@ -0,0 +1,382 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy.backend;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import org.lwjgl.LWJGLException;
+
+import net.alexmack.boothy.Resolution;
+
+/**
+ * A {@link Backend} wrapping another, that remembers the state set through it and drops
+ * calls that wouldn't change it: setting up a projection of the same size, binding the
+ * bound texture, setting the current color or blending, and pushing a matrix that's
+ * popped again without being moved. Anything changing GL state behind its back must call
+ * {@link #invalidate()}. Counts of the calls passed on and dropped are kept for each
+ * frame.
+ */
+public class StateCache implements Backend {
+	
+	private final Backend backend;
+	
+	// Only used by the rendering thread, a width of -1 means nothing is known.
+	private int width = -1, height = -1;
+	private int bound = -1;
+	private float r = -1, g = -1, b = -1, a = -1;
+	private int blending = -1;
+	
+	// Pushes not yet passed on, as nothing has moved the matrix since.
+	private int pushes = 0;
+	
+	private int frameIssued = 0, frameSkipped = 0;
+	private volatile int lastIssued = 0, lastSkipped = 0;
+	private volatile long issued = 0, skipped = 0;
+	
+	public StateCache(Backend backend) {
+		if (backend == null)
+			throw new IllegalArgumentException("StateCache needs a backend to wrap!");
+		
+		this.backend = backend;
+	}
+	
+	/**
+	 * Returns the backend calls are passed on to.
+	 */
+	public Backend getBackend() {
+		return backend;
+	}
+	
+	/**
+	 * Forgets all state, so the next call setting each piece of it is passed on.
+	 */
+	public void invalidate() {
+		width = height = -1;
+		bound = -1;
+		r = g = b = a = -1;
+		blending = -1;
+	}
+	
+	private void issued() {
+		frameIssued++;
+		issued++;
+	}
+	
+	private void skipped() {
+		frameSkipped++;
+		skipped++;
+	}
+	
+	@Override
+	public void create(Resolution resolution, String title) throws LWJGLException {
+		invalidate();
+		pushes = 0;
+		backend.create(resolution, title);
+	}
+	
+	@Override
+	public void destroy() {
+		backend.destroy();
+	}
+	
+	@Override
+	public boolean isCloseRequested() {
+		return backend.isCloseRequested();
+	}
+	
+	@Override
+	public void update() {
+		backend.update();
+		
+		lastIssued = frameIssued;
+		lastSkipped = frameSkipped;
+		frameIssued = frameSkipped = 0;
+	}
+	
+	@Override
+	public void processMessages() {
+		backend.processMessages();
+	}
+	
+	@Override
+	public boolean isVisible() {
+		return backend.isVisible();
+	}
+	
+	@Override
+	public boolean isActive() {
+		return backend.isActive();
+	}
+	
+	@Override
+	public boolean isDirty() {
+		return backend.isDirty();
+	}
+	
+	@Override
+	public void sync(int fps) {
+		backend.sync(fps);
+	}
+	
+	@Override
+	public int getWidth() {
+		return backend.getWidth();
+	}
+	
+	@Override
+	public int getHeight() {
+		return backend.getHeight();
+	}
+	
+	@Override
+	public boolean isFullscreenCapable() {
+		return backend.isFullscreenCapable();
+	}
+	
+	@Override
+	public void setFullscreen(boolean fullscreen) throws LWJGLException {
+		backend.setFullscreen(fullscreen);
+		invalidate();
+	}
+	
+	@Override
+	public void setTitle(String title) {
+		backend.setTitle(title);
+	}
+	
+	@Override
+	public void setResolution(Resolution resolution) throws LWJGLException {
+		backend.setResolution(resolution);
+		invalidate();
+	}
+	
+	@Override
+	public void setResizable(boolean resizable) {
+		backend.setResizable(resizable);
+	}
+	
+	@Override
+	public int getMouseButtonCount() {
+		return backend.getMouseButtonCount();
+	}
+	
+	@Override
+	public boolean nextKey() {
+		return backend.nextKey();
+	}
+	
+	@Override
+	public int getEventKey() {
+		return backend.getEventKey();
+	}
+	
+	@Override
+	public char getEventCharacter() {
+		return backend.getEventCharacter();
+	}
+	
+	@Override
+	public boolean getEventKeyState() {
+		return backend.getEventKeyState();
+	}
+	
+	@Override
+	public boolean nextMouse() {
+		return backend.nextMouse();
+	}
+	
+	@Override
+	public int getEventButton() {
+		return backend.getEventButton();
+	}
+	
+	@Override
+	public boolean getEventButtonState() {
+		return backend.getEventButtonState();
+	}
+	
+	@Override
+	public int getEventX() {
+		return backend.getEventX();
+	}
+	
+	@Override
+	public int getEventY() {
+		return backend.getEventY();
+	}
+	
+	@Override
+	public void setup(int width, int height) {
+		if (width == this.width && height == this.height) {
+			skipped();
+			return;
+		}
+		
+		backend.setup(width, height);
+		this.width = width;
+		this.height = height;
+		blending = BLEND_ALPHA;
+		issued();
+	}
+	
+	@Override
+	public void clear() {
+		backend.clear();
+	}
+	
+	@Override
+	public int createTexture(int width, int height, ByteBuffer pixels, int format, int type, int alignment) {
+		// Creating a texture leaves it bound.
+		return bound = backend.createTexture(width, height, pixels, format, type, alignment);
+	}
+	
+	@Override
+	public void updateTexture(int texture, int x, int y, int width, int height, ByteBuffer pixels, int format, int type, int alignment) {
+		backend.updateTexture(texture, x, y, width, height, pixels, format, type, alignment);
+		bound = texture;
+	}
+	
+	@Override
+	public void deleteTexture(int texture) {
+		backend.deleteTexture(texture);
+		
+		// GL falls back to no texture when the bound one is deleted.
+		if (bound == texture)
+			bound = 0;
+	}
+	
+	@Override
+	public boolean isFramebufferCapable() {
+		return backend.isFramebufferCapable();
+	}
+	
+	@Override
+	public int createFramebuffer(int texture) {
+		return backend.createFramebuffer(texture);
+	}
+	
+	@Override
+	public void bindFramebuffer(int framebuffer) {
+		backend.bindFramebuffer(framebuffer);
+	}
+	
+	@Override
+	public void deleteFramebuffer(int framebuffer) {
+		backend.deleteFramebuffer(framebuffer);
+	}
+	
+	@Override
+	public void bindTexture(int texture) {
+		if (texture == bound) {
+			skipped();
+			return;
+		}
+		
+		backend.bindTexture(texture);
+		bound = texture;
+		issued();
+	}
+	
+	@Override
+	public void color(float r, float g, float b, float a) {
+		if (r == this.r && g == this.g && b == this.b && a == this.a) {
+			skipped();
+			return;
+		}
+		
+		backend.color(r, g, b, a);
+		this.r = r;
+		this.g = g;
+		this.b = b;
+		this.a = a;
+		issued();
+	}
+	
+	@Override
+	public void blend(int mode) {
+		if (mode == blending) {
+			skipped();
+			return;
+		}
+		
+		backend.blend(mode);
+		blending = mode;
+		issued();
+	}
+	
+	@Override
+	public void drawQuad(float x, float y, float w, float h, float[] c, int[] t) {
+		backend.drawQuad(x, y, w, h, c, t);
+	}
+	
+	@Override
+	public void drawQuads(FloatBuffer vertices, FloatBuffer coordinates, int quads) {
+		backend.drawQuads(vertices, coordinates, quads);
+	}
+	
+	@Override
+	public void drawTriangles(FloatBuffer vertices, ByteBuffer colors, int vertexCount) {
+		backend.drawTriangles(vertices, colors, vertexCount);
+	}
+	
+	@Override
+	public void pushMatrix() {
+		// Held back until something moves the matrix, until then it's the same as its parent.
+		pushes++;
+	}
+	
+	@Override
+	public void translate(float x, float y) {
+		if (x == 0 && y == 0) {
+			skipped();
+			return;
+		}
+		
+		for (; pushes > 0; pushes--) {
+			backend.pushMatrix();
+			issued();
+		}
+		
+		backend.translate(x, y);
+		issued();
+	}
+	
+	@Override
+	public void popMatrix() {
+		// Neither the push nor the pop need passing on.
+		if (pushes > 0) {
+			pushes--;
+			skipped();
+			skipped();
+			return;
+		}
+		
+		backend.popMatrix();
+		issued();
+	}
+	
+	/**
+	 * Returns the number of state changes passed on during the last frame shown.
+	 */
+	public int getFrameIssued() {
+		return lastIssued;
+	}
+	
+	/**
+	 * Returns the number of state changes dropped during the last frame shown.
+	 */
+	public int getFrameSkipped() {
+		return lastSkipped;
+	}
+	
+	public long getIssued() {
+		return issued;
+	}
+	
+	public long getSkipped() {
+		return skipped;
+	}
+
+}
@@ -3,7 +3,9 @@
  */
 package net.alexmack.boothy.font;
 
-import java.util.Arrays;
+import java.nio.CharBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import net.alexmack.boothy.textures.Texture;
 
@@ -17,28 +19,89 @@ public class Font {
 		return fcode & 0xFFFF;
 	}
 	
-	private volatile Texture[] textures = new Texture[0];
+	public static final int DEFAULT_LAYOUT_CAPACITY = 256;
+	
+	// Glyphs are looked up by code point in pages of PAGE_SIZE, allocated when first used.
+	private static final int PAGE_BITS = 8;
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+	
+	// Glyphs are added from loader threads while the rendering thread draws. A missing page
+	// or glyph just draws the fallback, and a Texture's fields are final, so reading them
+	// racily is safe.
+	private final Texture[][] pages = new Texture[(Character.MAX_CODE_POINT >> PAGE_BITS) + 1][];
 	
 	private Texture fallback;
 	private int gap;
 	
+	// Incremented whenever the way text is drawn changes.
+	private volatile int version = 0;
+	
+	// Recently laid out text, least recently used first, emptied whenever the version changes.
+	private final LinkedHashMap<LayoutKey, TextLayout> layouts = new LinkedHashMap<LayoutKey, TextLayout>(16, 0.75F, true) {
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<LayoutKey, TextLayout> eldest) {
+			return size() > layoutCapacity;
+		}
+	
+	};
+	
+	// Reused to look up layouts without copying the text.
+	private final LayoutKey probe = new LayoutKey();
+	
+	private int layoutCapacity = DEFAULT_LAYOUT_CAPACITY;
+	private int layoutVersion = 0;
+	private volatile long layoutHits = 0, layoutMisses = 0;
+	
 	public Font(Texture fallback) {
 		this.fallback = fallback;
 		this.gap = 1;
 	}
 	
 	public int draw(int x, int y, String text) {
-		return draw(x, y, 1, text.toCharArray());
+		return draw(x, y, 1, (CharSequence) text);
 	}
 	
 	public int draw(int x, int y, int size, String text) {
-		return draw(x, y, size, text.toCharArray());
+		return draw(x, y, size, (CharSequence) text);
+	}
+	
+	public int draw(int x, int y, int size, CharSequence text) {
+		return draw(x, y, size, text, 0, text.length());
+	}
+	
+	/**
+	 * Draws the characters of the text from start up to end, returning the width and
+	 * height drawn for {@link #width} and {@link #height}.
+	 */
+	public int draw(int x, int y, int size, CharSequence text, int start, int end) {
+		return draw(x, y, size, text, null, start, end);
 	}
 	
 	public int draw(int x, int y, int size, char[] characters) {
-		int h = 0;
+		return draw(x, y, size, CharBuffer.wrap(characters), null, 0, characters.length);
+	}
+	
+	public int draw(int x, int y, int size, int[] codePoints) {
+		return draw(x, y, size, null, codePoints, 0, codePoints.length);
+	}
+	
+	/**
+	 * Draws either the characters of the text or the code points, whichever isn't null.
+	 */
+	private int draw(int x, int y, int size, CharSequence text, int[] codePoints, int start, int end) {
+		int h = 0, left = x;
 		
-		for (char c : characters) {
+		for (int i = start; i < end;) {
+			int c;
+			if (codePoints != null) {
+				c = codePoints[i++];
+			}else{
+				c = Character.codePointAt(text, i);
+				i += Character.charCount(c);
+			}
+			
 			Texture texture = get(c);
 			
 			int cW = texture.getWidth() * size;
@@ -49,60 +112,211 @@ public class Font {
 			h = cH > h ? cH : h;
 		}
 		
-		return (x << 16) & h;
+		return ((x - left) << 16) | h;
 	}
 	
 	public Texture get(char character) {
-		if (character >= textures.length)
+		return get((int) character);
+	}
+	
+	public Texture get(int codePoint) {
+		if (codePoint < 0 || codePoint > Character.MAX_CODE_POINT)
+			return fallback;
+		
+		Texture[] page = pages[codePoint >> PAGE_BITS];
+		if (page == null)
 			return fallback;
 		
-		return textures[character];
+		Texture texture = page[codePoint & PAGE_MASK];
+		return texture != null ? texture : fallback;
 	}
 	
 	public int getWidth(String string, int size) {
+		return getWidth((CharSequence) string, size);
+	}
+	
+	public int getWidth(CharSequence text, int size) {
 		int width = 0;
 		
-		for (char c : string.toCharArray())
+		for (int i = 0, length = text.length(); i < length;) {
+			int c = Character.codePointAt(text, i);
+			i += Character.charCount(c);
+			
 			width += (get(c).getWidth() + gap) * size;
+		}
 		
 		return width;
 	}
 	
-	public boolean addCharacter(char character, Texture texture) {
-		boolean overwrite = hasCharacter(character);
+	/**
+	 * Lays out the text with lines no wider than maxWidth, or only broken at new lines if
+	 * maxWidth is 0. Layouts are cached by size, maxWidth and text, so the result is shared
+	 * and must not be laid out into again.
+	 */
+	public TextLayout layout(CharSequence text, int size, int maxWidth) {
+		// Taken before laying out, so a change made meanwhile empties the cache next time.
+		int current = version;
 		
-		// If the array is not big enough, expand it.
-		if (textures.length <= character) {
-			// New array with the fallback value.
-			Texture[] texturesNew = new Texture[character + 1];
-			Arrays.fill(texturesNew, fallback);
+		synchronized (layouts) {
+			if (current != layoutVersion) {
+				layouts.clear();
+				layoutVersion = current;
+			}
 			
-			// Copy the old values over.
-			for (int i = 0; i < textures.length; i++)
-				texturesNew[i] = textures[i];
+			TextLayout layout = layouts.get(probe.set(text, size, maxWidth));
+			probe.text = null;
 			
-			textures = texturesNew;
+			if (layout != null) {
+				layoutHits++;
+				return layout;
+			}
+			
+			layoutMisses++;
+			layout = new TextLayout();
+			layout.layout(this, text, size, maxWidth);
+			layouts.put(new LayoutKey().set(text.toString(), size, maxWidth), layout);
+			return layout;
 		}
+	}
+	
+	/**
+	 * Lays out the text into the given layout without caching it, allocating nothing once
+	 * the layout has room for the lines.
+	 */
+	public TextLayout layout(CharSequence text, int size, int maxWidth, TextLayout into) {
+		into.layout(this, text, size, maxWidth);
+		return into;
+	}
+	
+	public int getWidth(int[] codePoints, int size) {
+		int width = 0;
+		
+		for (int c : codePoints)
+			width += (get(c).getWidth() + gap) * size;
+		
+		return width;
+	}
+	
+	public boolean addCharacter(char character, Texture texture) {
+		return addCharacter((int) character, texture);
+	}
+	
+	public synchronized boolean addCharacter(int codePoint, Texture texture) {
+		if (codePoint < 0 || codePoint > Character.MAX_CODE_POINT)
+			throw new IllegalArgumentException("Invalid code point " + codePoint + "!");
+		
+		boolean overwrite = hasCharacter(codePoint);
 		
-		this.
-		textures[character] = texture;
+		// Create the page holding the code point if this is its first glyph.
+		Texture[] page = pages[codePoint >> PAGE_BITS];
+		if (page == null)
+			page = pages[codePoint >> PAGE_BITS] = new Texture[PAGE_SIZE];
+		
+		page[codePoint & PAGE_MASK] = texture;
+		version++;
 		return overwrite;
 	}
 	
 	public void setFallback(Texture fallback) {
 		this.fallback = fallback;
+		version++;
 	}
 	
 	public void setGap(int gap) {
 		this.gap = gap;
+		version++;
 	}
 	
 	public boolean hasCharacter(char character) {
-		return get(character) != fallback;
+		return hasCharacter((int) character);
+	}
+	
+	public boolean hasCharacter(int codePoint) {
+		return get(codePoint) != fallback;
 	}
 	
 	public int getGap() {
 		return gap;
 	}
 	
+	/**
+	 * Sets how many layouts are kept cached, dropping the least recently used beyond it.
+	 */
+	public void setLayoutCapacity(int capacity) {
+		synchronized (layouts) {
+			layoutCapacity = capacity;
+			
+			while (layouts.size() > capacity)
+				layouts.remove(layouts.keySet().iterator().next());
+		}
+	}
+	
+	public int getLayoutCapacity() {
+		return layoutCapacity;
+	}
+	
+	public void clearLayouts() {
+		synchronized (layouts) {
+			layouts.clear();
+		}
+	}
+	
+	public long getLayoutHits() {
+		return layoutHits;
+	}
+	
+	public long getLayoutMisses() {
+		return layoutMisses;
+	}
+	
+	/**
+	 * Returns a number that changes whenever a character, the fallback or the gap does, so
+	 * that anything caching drawn text knows when to rebuild.
+	 */
+	public int getVersion() {
+		return version;
+	}
+	
+	private static class LayoutKey {
+		
+		private CharSequence text;
+		private int size, maxWidth, hash;
+		
+		private LayoutKey set(CharSequence text, int size, int maxWidth) {
+			this.text = text;
+			this.size = size;
+			this.maxWidth = maxWidth;
+			
+			// The same as String's hash, but without needing a String.
+			int hash = 31 * size + maxWidth;
+			for (int i = 0, length = text.length(); i < length; i++)
+				hash = 31 * hash + text.charAt(i);
+			
+			this.hash = hash;
+			return this;
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object object) {
+			if (!(object instanceof LayoutKey))
+				return false;
+			
+			LayoutKey key = (LayoutKey) object;
+			if (key.hash != hash || key.size != size || key.maxWidth != maxWidth || key.text.length() != text.length())
+				return false;
+			
+			for (int i = 0, length = text.length(); i < length; i++)
+				if (key.text.charAt(i) != text.charAt(i))
+					return false;
+			
+			return true;
+		}
+	
+	}
+	
 }
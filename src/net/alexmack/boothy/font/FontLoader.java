@@ -3,69 +3,264 @@
  */
 package net.alexmack.boothy.font;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import net.alexmack.boothy.Boothy;
+import net.alexmack.boothy.textures.Texture;
 import net.alexmack.boothy.textures.TextureLoader;
 
 public class FontLoader {
-
+	
 	public static final String PATH_FALLBACK = "unknown.png";
+	public static final String PATH_INDEX = "font.index";
 	
 	public static final String NAME_NUMBER = "_[0-9A-Fa-f]+\\.png";
 	public static final String NAME_CHARACTER = ".\\.png";
 	
+	private static final Pattern PATTERN_NUMBER = Pattern.compile("_([0-9A-Fa-f]+)\\.png");
+	private static final Pattern PATTERN_CHARACTER = Pattern.compile(NAME_CHARACTER);
+	
+	private static final String INDEX_HEADER = "# Boothy font index 1";
+	
+	private static final Comparator<Path> BY_NAME = new Comparator<Path>() {
+		
+		@Override
+		public int compare(Path p1, Path p2) {
+			return p1.getFileName().toString().compareTo(p2.getFileName().toString());
+		}
+	
+	};
+	
 	public static void fromFolder(Font font, TextureLoader tl, File folder) {
+		fromFolder(font, tl, folder, false);
+	}
+	
+	/**
+	 * Loads every glyph in the folder and its subfolders into the font, decoding them in
+	 * parallel. If index is true the glyph list is read from the folder's
+	 * {@link #PATH_INDEX} file when there is one, skipping the folder search, or written to
+	 * it afterwards when there isn't. Delete the index whenever glyphs are added or removed.
+	 */
+	public static void fromFolder(Font font, TextureLoader tl, File folder, boolean index) {
 		// Load fallback texture.
 		File fallback = new File(folder, PATH_FALLBACK);
 		if (fallback.exists())
 			font.setFallback(tl.fromFileSafe(fallback));
 		
-		ArrayList<File> folders = new ArrayList<>();
-		folders.add(folder);
+		File indexFile = new File(folder, PATH_INDEX);
+		List<Glyph> glyphs = index ? readIndex(folder, indexFile) : null;
 		
-		while (!folders.isEmpty()) {
-			folder = folders.remove(0);
-			Boothy.log(Boothy.LOG_INFO, "Searching \"" + folder.getAbsolutePath() + "\" for font textures...");
+		if (glyphs == null) {
+			glyphs = search(folder);
 			
-			for (File file : folder.listFiles())
-				if (file.isDirectory())
-					folders.add(file);
-				else {
-					String name = file.getName();
-					char character = 0;
+			if (index)
+				writeIndex(folder, indexFile, glyphs);
+		}
+		
+		// Decode everything at once, then add in order so later glyphs still win.
+		List<File> files = new ArrayList<>(glyphs.size());
+		for (Glyph glyph : glyphs)
+			files.add(glyph.file);
+		
+		List<Future<Texture>> futures = tl.loadAsync(files);
+		
+		try {
+			List<Texture> textures = tl.await(futures);
+			
+			for (int i = 0; i < glyphs.size(); i++)
+				font.addCharacter(glyphs.get(i).character, textures.get(i));
+		}catch (InterruptedException e) {
+			Boothy.log(Boothy.LOG_ERROR, "Interrupted while loading font from \"" + folder.getPath() + "\"!");
+			
+			for (Future<Texture> future : futures)
+				future.cancel(false);
+			
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	private static List<Glyph> search(File root) {
+		final Map<Path, List<Path>> folders = new HashMap<>();
+		final Map<Path, List<Path>> files = new HashMap<>();
+		
+		// Gather the whole tree in one pass, it's ordered afterwards.
+		try {
+			Files.walkFileTree(root.toPath(), new SimpleFileVisitor<Path>() {
+				
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+					folders.put(dir, new ArrayList<Path>());
+					files.put(dir, new ArrayList<Path>());
 					
-					if (name.matches(NAME_NUMBER))
-						try {
-							character = (char) Integer.parseInt(name.split("\\.")[0].substring(1), 16);
-						}catch (NumberFormatException nfe) {
-							Boothy.log(Boothy.LOG_ERROR, "Couldn't load font file \"" + name + "\", invalid codepoint!");
-							continue;
-						}
-					else if (name.matches(NAME_CHARACTER))
-						character = name.charAt(0);
-					else{
-						Boothy.log(Boothy.LOG_INFO, "Ignoring \"" + name + "\", not a valid font file...");
-						continue;
-					}
+					if (dir.getParent() != null && folders.containsKey(dir.getParent()))
+						folders.get(dir.getParent()).add(dir);
 					
-					Boothy.log(Boothy.LOG_INFO, "Loading " + character + " from " + file.getPath());
-					font.addCharacter(character, tl.fromFileSafe(file));
+					return FileVisitResult.CONTINUE;
 				}
-			
-			// Sort the folder list so that order is assured across operating systems.
-			Collections.sort(folders, new Comparator<File>() {
-
+				
 				@Override
-				public int compare(File f1, File f2) {
-					return f1.getName().compareTo(f2.getName());
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+					files.get(file.getParent()).add(file);
+					return FileVisitResult.CONTINUE;
 				}
 				
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException e) {
+					Boothy.log(Boothy.LOG_ERROR, "Couldn't search \"" + file + "\" for font textures!");
+					return FileVisitResult.CONTINUE;
+				}
+			
 			});
+		}catch (IOException e) {
+			Boothy.log(Boothy.LOG_ERROR, "Couldn't search \"" + root.getPath() + "\" for font textures!");
+		}
+		
+		List<Glyph> glyphs = new ArrayList<>();
+		
+		// Visit folders in the same order as always: the next folder is the pending one first
+		// by name, or first added among equal names, so order is assured across operating
+		// systems.
+		final Map<Path, Integer> added = new HashMap<>();
+		PriorityQueue<Path> pending = new PriorityQueue<>(16, new Comparator<Path>() {
+			
+			@Override
+			public int compare(Path p1, Path p2) {
+				int order = BY_NAME.compare(p1, p2);
+				return order != 0 ? order : Integer.compare(added.get(p1), added.get(p2));
+			}
+		
+		});
+		
+		added.put(root.toPath(), 0);
+		pending.add(root.toPath());
+		
+		while (!pending.isEmpty()) {
+			Path folder = pending.poll();
+			Boothy.logf(Boothy.LOG_DEBUG, "Searching \"{}\" for font textures...", folder.toAbsolutePath());
+			
+			List<Path> contents = files.get(folder);
+			if (contents == null)
+				continue;
+			
+			Collections.sort(contents, BY_NAME);
+			
+			for (Path file : contents) {
+				String name = file.getFileName().toString();
+				int character;
+				
+				Matcher number = PATTERN_NUMBER.matcher(name);
+				
+				if (number.matches())
+					try {
+						character = Integer.parseInt(number.group(1), 16);
+						
+						if (!Character.isValidCodePoint(character))
+							throw new NumberFormatException();
+					}catch (NumberFormatException nfe) {
+						Boothy.log(Boothy.LOG_ERROR, "Couldn't load font file \"" + name + "\", invalid codepoint!");
+						continue;
+					}
+				else if (PATTERN_CHARACTER.matcher(name).matches())
+					character = name.codePointAt(0);
+				else{
+					Boothy.logf(Boothy.LOG_DEBUG, "Ignoring \"{}\", not a valid font file...", name);
+					continue;
+				}
+				
+				if (Boothy.isLogged(Boothy.LOG_DEBUG))
+					Boothy.logf(Boothy.LOG_DEBUG, "Loading {} from {}", new String(Character.toChars(character)), file);
+				
+				glyphs.add(new Glyph(character, file.toFile()));
+			}
+			
+			for (Path subfolder : folders.get(folder)) {
+				added.put(subfolder, added.size());
+				pending.add(subfolder);
+			}
 		}
+		
+		return glyphs;
 	}
 	
+	private static List<Glyph> readIndex(File folder, File index) {
+		if (!index.isFile())
+			return null;
+		
+		List<Glyph> glyphs = new ArrayList<>();
+		
+		try (BufferedReader reader = Files.newBufferedReader(index.toPath(), StandardCharsets.UTF_8)) {
+			if (!INDEX_HEADER.equals(reader.readLine()))
+				return null;
+			
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int tab = line.indexOf('\t');
+				if (tab <= 0)
+					throw new NumberFormatException();
+				
+				int character = Integer.parseInt(line.substring(0, tab), 16);
+				if (!Character.isValidCodePoint(character))
+					throw new NumberFormatException();
+				
+				// Files aren't checked here, that would cost as much as searching.
+				glyphs.add(new Glyph(character, new File(folder, line.substring(tab + 1))));
+			}
+		}catch (IOException | NumberFormatException e) {
+			Boothy.log(Boothy.LOG_WARNING, "Ignoring unreadable font index \"" + index.getPath() + "\"!");
+			return null;
+		}
+		
+		Boothy.logf(Boothy.LOG_INFO, "Using font index \"{}\" for {} glyphs.", index.getPath(), glyphs.size());
+		return glyphs;
+	}
+	
+	private static void writeIndex(File folder, File index, List<Glyph> glyphs) {
+		Path root = folder.toPath();
+		
+		try (BufferedWriter writer = Files.newBufferedWriter(index.toPath(), StandardCharsets.UTF_8)) {
+			writer.write(INDEX_HEADER);
+			writer.newLine();
+			
+			for (Glyph glyph : glyphs) {
+				writer.write(Integer.toHexString(glyph.character));
+				writer.write('\t');
+				writer.write(root.relativize(glyph.file.toPath()).toString());
+				writer.newLine();
+			}
+		}catch (IOException e) {
+			Boothy.log(Boothy.LOG_WARNING, "Failed to write font index \"" + index.getPath() + "\"!");
+		}
+	}
+	
+	private static class Glyph {
+		
+		private final int character;
+		private final File file;
+		
+		private Glyph(int character, File file) {
+			this.character = character;
+			this.file = file;
+		}
+	
+	}
+
 }
@@ -0,0 +1,190 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy.font;
+
+import net.alexmack.boothy.textures.Texture;
+
+/**
+ * Text measured and broken into lines by a {@link Font}. Lines break at new lines and,
+ * given a maximum width, at the last space that fits or mid-word when a word is wider
+ * than a whole line. Lines are stored as ranges of the text, so laying out into an
+ * existing layout allocates nothing once its arrays are large enough.
+ */
+public class TextLayout {
+	
+	private Font font;
+	private int size;
+	
+	private int[] starts = new int[4], ends = new int[4], widths = new int[4], heights = new int[4];
+	private int lines = 0;
+	private int width = 0, height = 0;
+	
+	public TextLayout() {}
+	
+	void layout(Font font, CharSequence text, int size, int maxWidth) {
+		this.font = font;
+		this.size = size;
+		
+		lines = 0;
+		width = 0;
+		height = 0;
+		
+		int gap = font.getGap() * size;
+		int empty = font.get(' ').getHeight() * size;
+		int length = text.length();
+		int i = 0;
+		
+		while (true) {
+			int start = i, w = 0, h = 0, end, next;
+			int breakEnd = -1, breakNext = -1, breakW = 0, breakH = 0;
+			boolean wrapped = false;
+			
+			while (true) {
+				if (i >= length) {
+					end = i;
+					next = -1;
+					break;
+				}
+				
+				int c = Character.codePointAt(text, i);
+				int n = i + Character.charCount(c);
+				
+				if (c == '\n') {
+					end = i;
+					next = n;
+					break;
+				}
+				
+				// Remember the last space, the line can end just before it.
+				if (c == ' ' && i > start) {
+					breakEnd = i;
+					breakNext = n;
+					breakW = w;
+					breakH = h;
+				}
+				
+				Texture texture = font.get(c);
+				int cW = texture.getWidth() * size + gap;
+				
+				if (maxWidth > 0 && w + cW > maxWidth && i > start) {
+					wrapped = true;
+					
+					if (breakEnd > start) {
+						end = breakEnd;
+						next = breakNext;
+						w = breakW;
+						h = breakH;
+					}else
+						// No space to break at, so the word is split.
+						end = next = i;
+					break;
+				}
+				
+				int cH = texture.getHeight() * size;
+				w += cW;
+				h = cH > h ? cH : h;
+				i = n;
+			}
+			
+			addLine(start, end, w, end > start ? h : empty);
+			
+			if (next < 0)
+				break;
+			
+			// Spaces a line wrapped at aren't carried onto the next.
+			if (wrapped)
+				while (next < length && text.charAt(next) == ' ')
+					next++;
+			
+			i = next;
+		}
+		
+		height += gap * (lines - 1);
+	}
+	
+	private void addLine(int start, int end, int w, int h) {
+		if (lines == starts.length) {
+			int grown = lines * 2;
+			
+			int[] startsNew = new int[grown], endsNew = new int[grown];
+			int[] widthsNew = new int[grown], heightsNew = new int[grown];
+			
+			System.arraycopy(starts, 0, startsNew, 0, lines);
+			System.arraycopy(ends, 0, endsNew, 0, lines);
+			System.arraycopy(widths, 0, widthsNew, 0, lines);
+			System.arraycopy(heights, 0, heightsNew, 0, lines);
+			
+			starts = startsNew;
+			ends = endsNew;
+			widths = widthsNew;
+			heights = heightsNew;
+		}
+		
+		starts[lines] = start;
+		ends[lines] = end;
+		widths[lines] = w;
+		heights[lines] = h;
+		lines++;
+		
+		width = w > width ? w : width;
+		height += h;
+	}
+	
+	/**
+	 * Draws the text this was laid out from, each line below the last. The text must not
+	 * have changed since.
+	 */
+	public void draw(int x, int y, CharSequence text) {
+		int gap = font.getGap() * size;
+		
+		for (int i = 0; i < lines; i++) {
+			font.draw(x, y, size, text, starts[i], ends[i]);
+			y += heights[i] + gap;
+		}
+	}
+	
+	public int getLineCount() {
+		return lines;
+	}
+	
+	/**
+	 * Returns the index in the text of the first character of the line.
+	 */
+	public int getLineStart(int line) {
+		return starts[line];
+	}
+	
+	/**
+	 * Returns the index in the text just after the last character of the line, not
+	 * counting the space or new line it broke at.
+	 */
+	public int getLineEnd(int line) {
+		return ends[line];
+	}
+	
+	public int getLineWidth(int line) {
+		return widths[line];
+	}
+	
+	public int getLineHeight(int line) {
+		return heights[line];
+	}
+	
+	public int getWidth() {
+		return width;
+	}
+	
+	public int getHeight() {
+		return height;
+	}
+	
+	public int getSize() {
+		return size;
+	}
+	
+	public Font getFont() {
+		return font;
+	}
+
+}
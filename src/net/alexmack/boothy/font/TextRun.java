@@ -0,0 +1,228 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy.font;
+
+import java.nio.FloatBuffer;
+
+import org.lwjgl.BufferUtils;
+
+import net.alexmack.boothy.Boothy;
+import net.alexmack.boothy.backend.Backend;
+import net.alexmack.boothy.textures.ShapeBatch;
+import net.alexmack.boothy.textures.SpriteBatch;
+import net.alexmack.boothy.textures.Texture;
+import net.alexmack.boothy.textures.TextureBinding;
+
+/**
+ * A piece of text laid out once and then drawn as a whole. Glyph positions and texture
+ * coordinates are only recalculated when the text, size or {@link Font} changes, and
+ * each run of glyphs sharing a {@link TextureBinding} is submitted as a single draw, so
+ * a font packed into a {@link net.alexmack.boothy.textures.TextureAtlas} draws in one.
+ */
+public class TextRun {
+	
+	private Font font;
+	private String text;
+	private int size;
+	
+	private boolean dirty = true;
+	private int version = 0;
+	private int width = 0, height = 0;
+	
+	private float[] quads = new float[0];
+	private int count = 0;
+	
+	// Each run is a span of quads drawn with the same binding.
+	private TextureBinding[] bindings = new TextureBinding[0];
+	private int[] starts = new int[0], lengths = new int[0];
+	private int runs = 0;
+	
+	private FloatBuffer buffer = null;
+	private FloatBuffer[] vertices = new FloatBuffer[0], coordinates = new FloatBuffer[0];
+	
+	public TextRun(Font font, String text) {
+		this(font, text, 1);
+	}
+	
+	public TextRun(Font font, String text, int size) {
+		this.font = font;
+		this.text = text;
+		this.size = size;
+	}
+	
+	public void draw(int x, int y) {
+		if (dirty || version != font.getVersion() || isEvicted())
+			build();
+		
+		if (count == 0)
+			return;
+		
+		SpriteBatch batch = SpriteBatch.getActive();
+		
+		if (batch != null) {
+			for (int i = 0; i < runs; i++)
+				batch.draw(bindings[i], quads, starts[i] * SpriteBatch.QUAD_FLOATS, lengths[i], x, y);
+			return;
+		}
+		
+		// Anything staged before the text is placed when flushed, so it must go before the move.
+		SpriteBatch.flushActive();
+		ShapeBatch.flushActive();
+		
+		Backend backend = Boothy.getBackend();
+		backend.pushMatrix();
+		backend.translate(x, y);
+		
+		for (int i = 0; i < runs; i++)
+			SpriteBatch.submit(bindings[i], vertices[i], coordinates[i], lengths[i]);
+		
+		backend.popMatrix();
+	}
+	
+	private void build() {
+		int length = text.length();
+		
+		// Taken before reading the font, so a change made mid-build triggers another.
+		version = font.getVersion();
+		dirty = false;
+		
+		if (quads.length < length * SpriteBatch.QUAD_FLOATS)
+			quads = new float[length * SpriteBatch.QUAD_FLOATS];
+		
+		int x = 0, h = 0, offset = 0, gap = font.getGap() * size;
+		TextureBinding binding = null;
+		
+		count = 0;
+		runs = 0;
+		
+		for (int i = 0; i < length;) {
+			int c = text.codePointAt(i);
+			i += Character.charCount(c);
+			
+			Texture texture = font.get(c);
+			
+			int cW = texture.getWidth() * size;
+			int cH = texture.getHeight() * size;
+			
+			if (texture.prepare()) {
+				// Start a new run whenever the binding changes.
+				if (texture.getBinding() != binding) {
+					binding = texture.getBinding();
+					addRun(binding, count);
+				}
+				
+				offset = texture.put(quads, offset, x, 0, cW, cH);
+				lengths[runs - 1]++;
+				count++;
+			}else
+				// Glyphs that haven't been uploaded yet are picked up on a later draw.
+				dirty = true;
+			
+			x += cW + gap;
+			h = cH > h ? cH : h;
+		}
+		
+		width = x;
+		height = h;
+		
+		// Copy the quads to a native buffer for drawing outside of a batch.
+		if (buffer == null || buffer.capacity() < offset)
+			buffer = BufferUtils.createFloatBuffer(quads.length);
+		
+		buffer.clear();
+		buffer.put(quads, 0, offset);
+		
+		if (vertices.length < runs) {
+			vertices = new FloatBuffer[bindings.length];
+			coordinates = new FloatBuffer[bindings.length];
+		}
+		
+		for (int i = 0; i < runs; i++) {
+			int start = starts[i] * SpriteBatch.QUAD_FLOATS;
+			
+			buffer.position(start);
+			vertices[i] = buffer.slice();
+			buffer.position(start + 2);
+			coordinates[i] = buffer.slice();
+		}
+	}
+	
+	private boolean isEvicted() {
+		for (int i = 0; i < runs; i++)
+			if (!bindings[i].isReady())
+				return true;
+		
+		return false;
+	}
+	
+	private void addRun(TextureBinding binding, int start) {
+		if (runs == bindings.length) {
+			int grown = runs == 0 ? 4 : runs * 2;
+			
+			TextureBinding[] bindingsNew = new TextureBinding[grown];
+			int[] startsNew = new int[grown], lengthsNew = new int[grown];
+			
+			System.arraycopy(bindings, 0, bindingsNew, 0, runs);
+			System.arraycopy(starts, 0, startsNew, 0, runs);
+			System.arraycopy(lengths, 0, lengthsNew, 0, runs);
+			
+			bindings = bindingsNew;
+			starts = startsNew;
+			lengths = lengthsNew;
+		}
+		
+		bindings[runs] = binding;
+		starts[runs] = start;
+		lengths[runs] = 0;
+		runs++;
+	}
+	
+	public void setText(String text) {
+		if (!text.equals(this.text)) {
+			this.text = text;
+			dirty = true;
+		}
+	}
+	
+	public void setSize(int size) {
+		if (size != this.size) {
+			this.size = size;
+			dirty = true;
+		}
+	}
+	
+	public void setFont(Font font) {
+		if (font != this.font) {
+			this.font = font;
+			dirty = true;
+		}
+	}
+	
+	public String getText() {
+		return text;
+	}
+	
+	public int getSize() {
+		return size;
+	}
+	
+	public Font getFont() {
+		return font;
+	}
+	
+	public int getWidth() {
+		if (dirty || version != font.getVersion())
+			build();
+		
+		return width;
+	}
+	
+	public int getHeight() {
+		if (dirty || version != font.getVersion())
+			build();
+		
+		return height;
+	}
+
+}
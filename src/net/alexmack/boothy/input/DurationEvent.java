@@ -11,6 +11,10 @@ public class DurationEvent {
 		this.duration = duration;
 	}
 	
+	void setDuration(long duration) {
+		this.duration = duration;
+	}
+	
 	public long getDuration() {
 		return duration;
 	}
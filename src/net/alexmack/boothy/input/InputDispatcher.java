@@ -0,0 +1,107 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy.input;
+
+/**
+ * Delivers input to handlers as events. By default every callback gets a new event, but
+ * when reusing is enabled one {@link KeyboardEvent} and one {@link MouseEvent} are
+ * refilled for every callback instead, so dispatching input allocates nothing. Reused
+ * events are only valid for the duration of the callback they're passed to, handlers
+ * that keep events around must copy what they need.
+ */
+public class InputDispatcher {
+	
+	// Event types, for passing events around as primitives.
+	public static final int EVENT_KEY_DOWN = 0, EVENT_KEY_UP = 1, EVENT_KEY_PRESSED = 2;
+	public static final int EVENT_MOVE = 3, EVENT_BUTTON_DOWN = 4, EVENT_BUTTON_UP = 5, EVENT_BUTTON_CLICKED = 6;
+	
+	private final KeyboardEvent keyboardEvent = new KeyboardEvent(0, (char) 0, 0);
+	private final MouseEvent mouseEvent = new MouseEvent(0, 0, 0, 0);
+	
+	private volatile boolean reuse = false;
+	
+	/**
+	 * Dispatches an event given as primitives to whichever handler takes it, if it isn't
+	 * null. Keyboard events give the key as the code and the character as x.
+	 */
+	public void dispatch(KeyboardHandler keyboard, MouseHandler mouse, int type, int code, int x, int y, long duration) {
+		switch (type) {
+			case EVENT_KEY_DOWN:
+				if (keyboard != null)
+					keyDown(keyboard, code, (char) x, duration);
+				break;
+			case EVENT_KEY_UP:
+				if (keyboard != null)
+					keyUp(keyboard, code, (char) x, duration);
+				break;
+			case EVENT_KEY_PRESSED:
+				if (keyboard != null)
+					keyPressed(keyboard, code, (char) x, duration);
+				break;
+			case EVENT_MOVE:
+				if (mouse != null)
+					move(mouse, x, y);
+				break;
+			case EVENT_BUTTON_DOWN:
+				if (mouse != null)
+					buttonDown(mouse, code, duration, x, y);
+				break;
+			case EVENT_BUTTON_UP:
+				if (mouse != null)
+					buttonUp(mouse, code, duration, x, y);
+				break;
+			case EVENT_BUTTON_CLICKED:
+				if (mouse != null)
+					buttonClicked(mouse, code, duration, x, y);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown event type " + type + "!");
+		}
+	}
+	
+	public void keyDown(KeyboardHandler handler, int key, char character, long duration) {
+		handler.onKeyDown(keyboardEvent(key, character, duration));
+	}
+	
+	public void keyUp(KeyboardHandler handler, int key, char character, long duration) {
+		handler.onKeyUp(keyboardEvent(key, character, duration));
+	}
+	
+	public void keyPressed(KeyboardHandler handler, int key, char character, long duration) {
+		handler.onKeyPressed(keyboardEvent(key, character, duration));
+	}
+	
+	public void move(MouseHandler handler, int x, int y) {
+		handler.onMove(mouseEvent(-1, 0, x, y));
+	}
+	
+	public void buttonDown(MouseHandler handler, int button, long duration, int x, int y) {
+		handler.onButtonDown(mouseEvent(button, duration, x, y));
+	}
+	
+	public void buttonUp(MouseHandler handler, int button, long duration, int x, int y) {
+		handler.onButtonUp(mouseEvent(button, duration, x, y));
+	}
+	
+	public void buttonClicked(MouseHandler handler, int button, long duration, int x, int y) {
+		handler.onButtonClicked(mouseEvent(button, duration, x, y));
+	}
+	
+	private KeyboardEvent keyboardEvent(int key, char character, long duration) {
+		return reuse ? keyboardEvent.set(key, character, duration) : new KeyboardEvent(key, character, duration);
+	}
+	
+	private MouseEvent mouseEvent(int button, long duration, int x, int y) {
+		return reuse ? mouseEvent.set(button, duration, x, y) : new MouseEvent(button, duration, x, y);
+	}
+	
+	public void setReuse(boolean reuse) {
+		this.reuse = reuse;
+	}
+	
+	public boolean isReuse() {
+		return reuse;
+	}
+	
+}
@@ -0,0 +1,156 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy.input;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed size ring buffer of input events stored as primitives, written by one thread and
+ * drained by another. Events arriving while the buffer is full are dropped, and runs of
+ * mouse moves found while draining are coalesced into the last of them.
+ */
+public class InputQueue {
+	
+	public static final int DEFAULT_CAPACITY = 1024;
+	
+	private final int mask;
+	
+	// Each event is spread across these arrays at the same index.
+	private final int[] types, codes, xs, ys;
+	private final long[] durations, times;
+	
+	// The next slot to write and the next slot to read, only ever increasing.
+	private final AtomicLong head = new AtomicLong(), tail = new AtomicLong();
+	
+	private volatile long dropped = 0, coalesced = 0, dispatched = 0;
+	private volatile long latencyTotal = 0, latencyMax = 0;
+	
+	public InputQueue() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	public InputQueue(int capacity) {
+		if (capacity <= 0 || Integer.bitCount(capacity) != 1)
+			throw new IllegalArgumentException("InputQueue capacity must be a power of two!");
+		
+		mask = capacity - 1;
+		types = new int[capacity];
+		codes = new int[capacity];
+		xs = new int[capacity];
+		ys = new int[capacity];
+		durations = new long[capacity];
+		times = new long[capacity];
+	}
+	
+	/**
+	 * Adds an event, returning false if it was dropped because the buffer is full. Only
+	 * the producing thread may call this.
+	 */
+	public boolean push(int type, int code, int x, int y, long duration) {
+		long h = head.get();
+		
+		if (h - tail.get() > mask) {
+			dropped++;
+			return false;
+		}
+		
+		int i = (int) h & mask;
+		types[i] = type;
+		codes[i] = code;
+		xs[i] = x;
+		ys[i] = y;
+		durations[i] = duration;
+		times[i] = System.nanoTime();
+		
+		// Publishes the slot to the consumer.
+		head.lazySet(h + 1);
+		return true;
+	}
+	
+	/**
+	 * Dispatches every event currently in the buffer to the handlers, returning the number
+	 * dispatched. Only one thread may drain at a time.
+	 */
+	public int drain(InputDispatcher dispatcher, KeyboardHandler keyboard, MouseHandler mouse) {
+		long t = tail.get();
+		long h = head.get();
+		long now = System.nanoTime();
+		
+		long max = latencyMax, total = 0;
+		int count = 0, skipped = 0;
+		
+		for (; t < h; t++) {
+			int i = (int) t & mask;
+			int type = types[i];
+			
+			long latency = now - times[i];
+			total += latency;
+			max = latency > max ? latency : max;
+			
+			// Only the last of a run of moves matters.
+			if (type == InputDispatcher.EVENT_MOVE && t + 1 < h && types[(int) (t + 1) & mask] == InputDispatcher.EVENT_MOVE) {
+				skipped++;
+				continue;
+			}
+			
+			int code = codes[i], x = xs[i], y = ys[i];
+			long duration = durations[i];
+			
+			// Free the slot before calling out, the handler may take a while.
+			tail.lazySet(t + 1);
+			dispatcher.dispatch(keyboard, mouse, type, code, x, y, duration);
+			count++;
+		}
+		
+		tail.lazySet(t);
+		
+		coalesced += skipped;
+		dispatched += count;
+		latencyTotal += total;
+		latencyMax = max;
+		return count;
+	}
+	
+	public boolean isEmpty() {
+		return head.get() == tail.get();
+	}
+	
+	public int getCapacity() {
+		return mask + 1;
+	}
+	
+	/**
+	 * Returns the number of events dropped because the buffer was full.
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+	
+	/**
+	 * Returns the number of mouse moves skipped because a later move replaced them.
+	 */
+	public long getCoalesced() {
+		return coalesced;
+	}
+	
+	public long getDispatched() {
+		return dispatched;
+	}
+	
+	/**
+	 * Returns the mean time, in nanoseconds, between an event being pushed and drained.
+	 */
+	public long getLatencyAverage() {
+		long events = dispatched + coalesced;
+		return events > 0 ? latencyTotal / events : 0;
+	}
+	
+	/**
+	 * Returns the longest time, in nanoseconds, between an event being pushed and drained.
+	 */
+	public long getLatencyMax() {
+		return latencyMax;
+	}
+
+}
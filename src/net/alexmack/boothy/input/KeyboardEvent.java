@@ -16,6 +16,13 @@ public class KeyboardEvent extends DurationEvent {
 		this.character = character;
 	}
 	
+	KeyboardEvent set(int key, char character, long duration) {
+		setDuration(duration);
+		this.key = key;
+		this.character = character;
+		return this;
+	}
+	
 	public int getKey() {
 		return key;
 	}
@@ -16,6 +16,14 @@ public class MouseEvent extends DurationEvent {
 		this.y = y;
 	}
 	
+	MouseEvent set(int button, long duration, int x, int y) {
+		setDuration(duration);
+		this.button = button;
+		this.x = x;
+		this.y = y;
+		return this;
+	}
+	
 	public int getButton() {
 		return button;
 	}
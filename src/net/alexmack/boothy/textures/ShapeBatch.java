@@ -0,0 +1,329 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy.textures;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import net.alexmack.boothy.Boothy;
+
+/**
+ * Collects untextured rectangles, lines, circles and arcs as coloured triangles, and
+ * submits them with one draw call each time the batch is flushed or fills up. Colours
+ * are RGB ints, as with {@link TextureColor}, given to each vertex so gradients cost
+ * nothing extra. While a batch is active (between {@link #begin()} and {@link #end()})
+ * shapes and textures are kept in the order they're drawn: starting a run of shapes
+ * flushes the active {@link SpriteBatch}, and drawing a texture flushes the shapes.
+ */
+public class ShapeBatch {
+	
+	public static final int DEFAULT_CAPACITY = 4096;
+	public static final int DEFAULT_SEGMENTS = 32;
+	
+	// Two position floats and a colour of four bytes per vertex, each four bytes wide.
+	public static final int VERTEX_WORDS = 3;
+	
+	private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+	
+	private static ShapeBatch active = null;
+	
+	/**
+	 * Returns the batch currently collecting shapes on the rendering {@link Thread}, or
+	 * null if there isn't one.
+	 */
+	public static ShapeBatch getActive() {
+		return active;
+	}
+	
+	/**
+	 * Submits any shapes the active batch is holding, if there is one.
+	 */
+	public static void flushActive() {
+		if (active != null)
+			active.flush();
+	}
+	
+	/**
+	 * Packs the colour into an int holding its bytes in the order GL reads them, red first.
+	 */
+	public static int pack(int rgb, int alpha) {
+		int r = (rgb >>> 16) & 0xFF, g = (rgb >>> 8) & 0xFF, b = rgb & 0xFF, a = alpha & 0xFF;
+		
+		return LITTLE_ENDIAN ? (a << 24) | (b << 16) | (g << 8) | r : (r << 24) | (g << 16) | (b << 8) | a;
+	}
+	
+	private final int capacity;
+	private final int[] staging;
+	private final IntBuffer words;
+	private final FloatBuffer positions;
+	private final ByteBuffer colors;
+	
+	private int vertices = 0;
+	private boolean drawing = false;
+	
+	private int alpha = 0xFF;
+	private int color = pack(0xFFFFFF, alpha);
+	
+	private int drawCalls = 0, triangles = 0;
+	
+	public ShapeBatch() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Creates a batch holding up to the given number of triangles between draw calls.
+	 */
+	public ShapeBatch(int capacity) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("ShapeBatch capacity must be positive!");
+		
+		this.capacity = capacity * 3;
+		this.staging = new int[this.capacity * VERTEX_WORDS];
+		
+		ByteBuffer buffer = ByteBuffer.allocateDirect(staging.length * 4).order(ByteOrder.nativeOrder());
+		this.words = buffer.asIntBuffer();
+		this.positions = buffer.asFloatBuffer();
+		
+		// Colours are interleaved after each vertex position.
+		buffer.position(8);
+		this.colors = buffer.slice().order(ByteOrder.nativeOrder());
+	}
+	
+	public void begin() {
+		if (drawing)
+			throw new IllegalStateException("ShapeBatch has already begun!");
+		
+		drawing = true;
+		drawCalls = 0;
+		triangles = 0;
+		active = this;
+	}
+	
+	public void end() {
+		if (!drawing)
+			throw new IllegalStateException("ShapeBatch hasn't begun!");
+		
+		flush();
+		drawing = false;
+		
+		if (active == this)
+			active = null;
+	}
+	
+	public void flush() {
+		if (vertices == 0)
+			return;
+		
+		// Copy the staged vertices into the native buffer in one go.
+		words.clear();
+		words.put(staging, 0, vertices * VERTEX_WORDS);
+		
+		Boothy.getBackend().drawTriangles(positions, colors, vertices);
+		
+		drawCalls++;
+		triangles += vertices / 3;
+		vertices = 0;
+	}
+	
+	/**
+	 * Sets the colour of the shapes drawn after this, fully opaque.
+	 */
+	public void setColor(int rgb) {
+		setColor(rgb, 0xFF);
+	}
+	
+	/**
+	 * Sets the colour and alpha (0 to 255) of the shapes drawn after this. Shapes given
+	 * colours of their own use this alpha.
+	 */
+	public void setColor(int rgb, int alpha) {
+		this.alpha = alpha;
+		this.color = pack(rgb, alpha);
+	}
+	
+	public void fillRect(float x, float y, float w, float h) {
+		reserve(6);
+		quad(x, y, color, x + w, y, color, x + w, y + h, color, x, y + h, color);
+	}
+	
+	/**
+	 * Fills the rectangle with a vertical gradient from the top colour to the bottom.
+	 */
+	public void fillRect(float x, float y, float w, float h, int rgbTop, int rgbBottom) {
+		int top = pack(rgbTop, alpha), bottom = pack(rgbBottom, alpha);
+		
+		reserve(6);
+		quad(x, y, top, x + w, y, top, x + w, y + h, bottom, x, y + h, bottom);
+	}
+	
+	/**
+	 * Outlines the rectangle with lines of the given width, drawn inside its bounds.
+	 */
+	public void drawRect(float x, float y, float w, float h, float width) {
+		width = Math.min(width, Math.min(w, h) / 2);
+		
+		reserve(24);
+		fillRect(x, y, w, width);
+		fillRect(x, y + h - width, w, width);
+		fillRect(x, y + width, width, h - width * 2);
+		fillRect(x + w - width, y + width, width, h - width * 2);
+	}
+	
+	public void line(float x1, float y1, float x2, float y2, float width) {
+		segment(x1, y1, x2, y2, width, color, color);
+	}
+	
+	/**
+	 * Draws a line fading from the first colour to the second.
+	 */
+	public void line(float x1, float y1, float x2, float y2, float width, int rgb1, int rgb2) {
+		segment(x1, y1, x2, y2, width, pack(rgb1, alpha), pack(rgb2, alpha));
+	}
+	
+	private void segment(float x1, float y1, float x2, float y2, float width, int c1, int c2) {
+		float dx = x2 - x1, dy = y2 - y1;
+		float length = (float) Math.sqrt(dx * dx + dy * dy);
+		if (length == 0)
+			return;
+		
+		// Half the width along the line's normal.
+		float nx = -dy / length * width / 2, ny = dx / length * width / 2;
+		
+		reserve(6);
+		quad(x1 + nx, y1 + ny, c1, x2 + nx, y2 + ny, c2, x2 - nx, y2 - ny, c2, x1 - nx, y1 - ny, c1);
+	}
+	
+	public void fillCircle(float x, float y, float radius) {
+		fillArc(x, y, radius, 0, (float) (Math.PI * 2), DEFAULT_SEGMENTS);
+	}
+	
+	public void fillCircle(float x, float y, float radius, int segments) {
+		fillArc(x, y, radius, 0, (float) (Math.PI * 2), segments);
+	}
+	
+	public void drawCircle(float x, float y, float radius, float width) {
+		drawArc(x, y, radius, width, 0, (float) (Math.PI * 2), DEFAULT_SEGMENTS);
+	}
+	
+	public void drawCircle(float x, float y, float radius, float width, int segments) {
+		drawArc(x, y, radius, width, 0, (float) (Math.PI * 2), segments);
+	}
+	
+	/**
+	 * Fills the slice of the circle between the angles, in radians clockwise from the
+	 * positive x axis, made of the given number of triangles.
+	 */
+	public void fillArc(float x, float y, float radius, float start, float end, int segments) {
+		if (segments <= 0)
+			throw new IllegalArgumentException("An arc needs at least one segment!");
+		
+		reserve(segments * 3);
+		
+		// Step around the arc by rotating, rather than calling on cos and sin every time.
+		double step = (end - start) / segments;
+		float cos = (float) Math.cos(step), sin = (float) Math.sin(step);
+		float dx = (float) Math.cos(start) * radius, dy = (float) Math.sin(start) * radius;
+		
+		for (int i = 0; i < segments; i++) {
+			float nx = dx * cos - dy * sin, ny = dx * sin + dy * cos;
+			
+			vertex(x, y, color);
+			vertex(x + dx, y + dy, color);
+			vertex(x + nx, y + ny, color);
+			
+			dx = nx;
+			dy = ny;
+		}
+	}
+	
+	/**
+	 * Draws the outline of an arc with lines of the given width, centred on the radius.
+	 */
+	public void drawArc(float x, float y, float radius, float width, float start, float end, int segments) {
+		if (segments <= 0)
+			throw new IllegalArgumentException("An arc needs at least one segment!");
+		
+		reserve(segments * 6);
+		
+		double step = (end - start) / segments;
+		float cos = (float) Math.cos(step), sin = (float) Math.sin(step);
+		float dx = (float) Math.cos(start), dy = (float) Math.sin(start);
+		float inner = Math.max(0, radius - width / 2), outer = radius + width / 2;
+		
+		for (int i = 0; i < segments; i++) {
+			float nx = dx * cos - dy * sin, ny = dx * sin + dy * cos;
+			
+			quad(x + dx * outer, y + dy * outer, color, x + nx * outer, y + ny * outer, color,
+					x + nx * inner, y + ny * inner, color, x + dx * inner, y + dy * inner, color);
+			
+			dx = nx;
+			dy = ny;
+		}
+	}
+	
+	/**
+	 * Makes room for the given number of vertices, flushing if the batch is too full. A
+	 * shape starting a run also flushes the active {@link SpriteBatch}, so the textures
+	 * drawn before it stay underneath.
+	 */
+	private void reserve(int count) {
+		if (!drawing)
+			throw new IllegalStateException("ShapeBatch hasn't begun!");
+		
+		if (count > capacity)
+			throw new IllegalArgumentException("Shape of " + count + " vertices is too large for the batch!");
+		
+		if (vertices + count > capacity)
+			flush();
+		
+		if (vertices == 0)
+			SpriteBatch.flushActive();
+	}
+	
+	private void quad(float x1, float y1, int c1, float x2, float y2, int c2, float x3, float y3, int c3, float x4, float y4, int c4) {
+		vertex(x1, y1, c1);
+		vertex(x2, y2, c2);
+		vertex(x3, y3, c3);
+		
+		vertex(x1, y1, c1);
+		vertex(x3, y3, c3);
+		vertex(x4, y4, c4);
+	}
+	
+	private void vertex(float x, float y, int color) {
+		int i = vertices++ * VERTEX_WORDS;
+		
+		staging[i] = Float.floatToRawIntBits(x);
+		staging[i + 1] = Float.floatToRawIntBits(y);
+		staging[i + 2] = color;
+	}
+	
+	public boolean isDrawing() {
+		return drawing;
+	}
+	
+	/**
+	 * Returns the number of triangles held between draw calls.
+	 */
+	public int getCapacity() {
+		return capacity / 3;
+	}
+	
+	/**
+	 * Returns the number of draw calls issued since the last {@link #begin()}.
+	 */
+	public int getDrawCalls() {
+		return drawCalls;
+	}
+	
+	/**
+	 * Returns the number of triangles drawn since the last {@link #begin()}.
+	 */
+	public int getTriangles() {
+		return triangles;
+	}
+
+}
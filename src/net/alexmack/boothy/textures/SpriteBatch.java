@@ -0,0 +1,222 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy.textures;
+
+import java.nio.FloatBuffer;
+
+import org.lwjgl.BufferUtils;
+
+import net.alexmack.boothy.Boothy;
+
+/**
+ * Collects textured quads into a single vertex buffer and submits them with one
+ * draw call for every run of quads sharing a {@link TextureBinding}. While a batch is
+ * active (between {@link #begin()} and {@link #end()}) every {@link Texture} draw is
+ * routed through it, so anything issuing its own GL calls mid-frame should call
+ * {@link #flushActive()} first.
+ */
+public class SpriteBatch {
+	
+	public static final int DEFAULT_CAPACITY = 1024;
+	
+	// Two position floats and two texture coordinate floats per vertex.
+	public static final int VERTEX_FLOATS = 4;
+	public static final int QUAD_FLOATS = VERTEX_FLOATS * 4;
+	
+	private static SpriteBatch active = null;
+	
+	/**
+	 * Returns the batch currently collecting draws on the rendering {@link Thread}, or
+	 * null if draws should be issued immediately.
+	 */
+	public static SpriteBatch getActive() {
+		return active;
+	}
+	
+	/**
+	 * Submits anything the active batch is holding, if there is one.
+	 */
+	public static void flushActive() {
+		if (active != null)
+			active.flush();
+	}
+	
+	private final int capacity;
+	private final float[] staging;
+	private final FloatBuffer vertices;
+	private final FloatBuffer coordinates;
+	
+	private TextureBinding binding = null;
+	private int quads = 0;
+	private boolean drawing = false;
+	
+	private int drawCalls = 0, sprites = 0;
+	
+	public SpriteBatch() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	public SpriteBatch(int capacity) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("SpriteBatch capacity must be positive!");
+		
+		this.capacity = capacity;
+		this.staging = new float[capacity * QUAD_FLOATS];
+		this.vertices = BufferUtils.createFloatBuffer(staging.length);
+		
+		// Texture coordinates are interleaved after each vertex position.
+		vertices.position(2);
+		this.coordinates = vertices.slice();
+		vertices.position(0);
+	}
+	
+	public void begin() {
+		if (drawing)
+			throw new IllegalStateException("SpriteBatch has already begun!");
+		
+		drawing = true;
+		drawCalls = 0;
+		sprites = 0;
+		active = this;
+	}
+	
+	public void end() {
+		if (!drawing)
+			throw new IllegalStateException("SpriteBatch hasn't begun!");
+		
+		flush();
+		drawing = false;
+		binding = null;
+		
+		if (active == this)
+			active = null;
+	}
+	
+	public void draw(TextureBinding binding, int x, int y, int w, int h, float[] c, int[] t) {
+		ShapeBatch.flushActive();
+		
+		// Changing binding or running out of room means the held quads must go.
+		if (binding != this.binding || quads == capacity) {
+			flush();
+			this.binding = binding;
+		}
+		
+		put(staging, quads * QUAD_FLOATS, x, y, w, h, c, t);
+		
+		quads++;
+		sprites++;
+	}
+	
+	/**
+	 * Draws quads already laid out by {@link #put}, offset by the given position. The
+	 * quads are copied, so the array may be reused.
+	 */
+	public void draw(TextureBinding binding, float[] source, int offset, int count, float dx, float dy) {
+		ShapeBatch.flushActive();
+		
+		while (count > 0) {
+			if (binding != this.binding || quads == capacity) {
+				flush();
+				this.binding = binding;
+			}
+			
+			int n = Math.min(count, capacity - quads);
+			int floats = n * QUAD_FLOATS;
+			int i = quads * QUAD_FLOATS;
+			
+			// Positions are shifted, texture coordinates are copied as they are.
+			for (int j = offset, end = offset + floats; j < end; j += VERTEX_FLOATS) {
+				staging[i++] = source[j] + dx;
+				staging[i++] = source[j + 1] + dy;
+				staging[i++] = source[j + 2];
+				staging[i++] = source[j + 3];
+			}
+			
+			quads += n;
+			sprites += n;
+			offset += floats;
+			count -= n;
+		}
+	}
+	
+	public void flush() {
+		if (quads == 0)
+			return;
+		
+		// Copy the staged quads into the native buffer in one go.
+		vertices.clear();
+		vertices.put(staging, 0, quads * QUAD_FLOATS);
+		vertices.flip();
+		
+		submit(binding, vertices, coordinates, quads);
+		
+		drawCalls++;
+		quads = 0;
+	}
+	
+	public boolean isDrawing() {
+		return drawing;
+	}
+	
+	public int getCapacity() {
+		return capacity;
+	}
+	
+	/**
+	 * Returns the number of draw calls issued since the last {@link #begin()}.
+	 */
+	public int getDrawCalls() {
+		return drawCalls;
+	}
+	
+	/**
+	 * Returns the number of sprites drawn since the last {@link #begin()}.
+	 */
+	public int getSprites() {
+		return sprites;
+	}
+	
+	/**
+	 * Writes a quad into the array in the layout used by the batch, returning the offset
+	 * following it.
+	 */
+	public static int put(float[] staging, int i, float x, float y, float w, float h, float[] c, int[] t) {
+		// First corner, top left when using standard translation.
+		staging[i++] = x;
+		staging[i++] = y;
+		staging[i++] = c[t[0]];
+		staging[i++] = c[t[1]];
+		
+		// Second corner, top right when using standard translation.
+		staging[i++] = x + w;
+		staging[i++] = y;
+		staging[i++] = c[t[2]];
+		staging[i++] = c[t[3]];
+		
+		// Third corner, bottom right when using standard translation.
+		staging[i++] = x + w;
+		staging[i++] = y + h;
+		staging[i++] = c[t[4]];
+		staging[i++] = c[t[5]];
+		
+		// Fourth corner, bottom left when using standard translation.
+		staging[i++] = x;
+		staging[i++] = y + h;
+		staging[i++] = c[t[6]];
+		staging[i++] = c[t[7]];
+		
+		return i;
+	}
+	
+	/**
+	 * Draws quads held in a native buffer in the batch layout, with the given buffer views
+	 * starting at a position and a texture coordinate respectively.
+	 */
+	public static void submit(TextureBinding binding, FloatBuffer vertices, FloatBuffer coordinates, int quads) {
+		ShapeBatch.flushActive();
+		binding.bind();
+		Boothy.getBackend().drawQuads(vertices, coordinates, quads);
+	}
+	
+}
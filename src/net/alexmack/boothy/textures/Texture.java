@@ -5,7 +5,7 @@ package net.alexmack.boothy.textures;
 
 import java.awt.image.BufferedImage;
 
-import org.lwjgl.opengl.GL11;
+import net.alexmack.boothy.Boothy;
 
 public class Texture {
 	
@@ -67,10 +67,11 @@ public class Texture {
 			0, 1
 	};
 
-	private TextureBinding binding;
+	private final TextureBinding binding;
 
-	private int width, height;
-	private float[] coordinates;
+	private final int width, height;
+	private final float[] coordinates;
+	private boolean released = false;
 
 	public Texture(BufferedImage image) {
 		this(new TextureBinding(image));
@@ -85,6 +86,8 @@ public class Texture {
 		this.width = width;
 		this.height = height;
 		this.coordinates = coordinates;
+		
+		binding.retain();
 	}
 
 	public void draw(int x, int y) {
@@ -101,33 +104,35 @@ public class Texture {
 
 	public void draw(int x, int y, int w, int h, int[] t) {
 		// Don't draw using a binding that hasn't been loaded.
-		if (!isReady())
+		if (!prepare())
 			return;
 
-		binding.bind();
-
-		GL11.glBegin(GL11.GL_QUADS);
-		{
-			// First corner, top left when using standard translation.
-			GL11.glTexCoord2f(coordinates[t[0]], coordinates[t[1]]);
-			GL11.glVertex2f(x, y);
-
-			// Second corner, top right when using standard translation.
-			GL11.glTexCoord2f(coordinates[t[2]], coordinates[t[3]]);
-			GL11.glVertex2f(x + w, y);
-
-			// Third corner, bottom right when using standard translation.
-			GL11.glTexCoord2f(coordinates[t[4]], coordinates[t[5]]);
-			GL11.glVertex2f(x + w, y + h);
-
-			// Fourth corner, bottom left when using standard translation.
-			GL11.glTexCoord2f(coordinates[t[6]], coordinates[t[7]]);
-			GL11.glVertex2f(x, y + h);
+		// Hand the quad to the active batch if there is one.
+		SpriteBatch batch = SpriteBatch.getActive();
+		if (batch != null) {
+			batch.draw(binding, x, y, w, h, coordinates, t);
+			return;
 		}
-		GL11.glEnd();
+		
+		// Shapes drawn before this go underneath it.
+		ShapeBatch.flushActive();
+
+		binding.bind();
+		Boothy.getBackend().drawQuad(x, y, w, h, coordinates, t);
+	}
+	
+	/**
+	 * Writes this texture as a quad into the array in the {@link SpriteBatch} layout,
+	 * returning the offset following it.
+	 */
+	public int put(float[] vertices, int offset, float x, float y, float w, float h) {
+		return SpriteBatch.put(vertices, offset, x, y, w, h, coordinates, TRANSLATION_NORMAL);
 	}
 	
 	public Texture cut(int x, int y, int w, int h) {
+		if (released)
+			throw new IllegalStateException("Can't cut a released texture!");
+		
 		// Check the coordinates are valid.
 		if (x < 0 || y < 0 || x >= width || y >= width)
 			throw new IllegalArgumentException("Invalid coordinates for cut!");
@@ -185,6 +190,40 @@ public class Texture {
 		return binding.isReady();
 	}
 	
+	float[] getCoordinates() {
+		return coordinates;
+	}
+	
+	/**
+	 * Returns true if the texture can be drawn. If it can't because it was evicted by its
+	 * {@link TextureMemory}, it's reloaded in the background. This must be called from the
+	 * rendering {@link Thread}.
+	 */
+	public boolean prepare() {
+		if (binding.isReady())
+			return true;
+		
+		binding.restore();
+		return false;
+	}
+	
+	/**
+	 * Drops this texture's reference to its binding. Once every texture drawing from a
+	 * binding, including those cut from it, has been released, the binding is deleted from
+	 * GL by its {@link TextureMemory}.
+	 */
+	public synchronized void release() {
+		if (released)
+			return;
+		
+		released = true;
+		binding.release();
+	}
+	
+	public boolean isReleased() {
+		return released;
+	}
+	
 	public boolean is404() {
 		return false;
 	}
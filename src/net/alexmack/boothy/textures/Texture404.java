@@ -89,6 +89,11 @@ public class Texture404 extends Texture {
 		super.draw(x, y, w, h, Texture.TRANSLATION_NORMAL);
 	}
 	
+	@Override
+	public void release() {
+		// Shared by everything that failed to load, so it's never released.
+	}
+	
 	@Override
 	public boolean is404() {
 		return true;
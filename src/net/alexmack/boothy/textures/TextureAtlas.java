@@ -0,0 +1,232 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy.textures;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.alexmack.boothy.Boothy;
+import net.alexmack.boothy.Window;
+
+/**
+ * Packs small images into shared square pages so that many {@link Texture}s can share a
+ * single {@link TextureBinding}. Each page is filled using a shelf packer; the returned
+ * textures address their area of the page the same way {@link Texture#cut} does.
+ */
+public class TextureAtlas {
+	
+	public static final int DEFAULT_PAGE_SIZE = 1024;
+	public static final int DEFAULT_PADDING = 1;
+	
+	private final Window window;
+	private final int pageSize, padding, maxImageSize;
+	
+	private final List<Page> pages = new ArrayList<>();
+	
+	public TextureAtlas(Window window) {
+		this(window, DEFAULT_PAGE_SIZE, DEFAULT_PADDING);
+	}
+	
+	public TextureAtlas(Window window, int pageSize, int padding) {
+		this(window, pageSize, padding, pageSize / 4);
+	}
+	
+	public TextureAtlas(Window window, int pageSize, int padding, int maxImageSize) {
+		if (pageSize <= 0 || padding < 0)
+			throw new IllegalArgumentException("Invalid atlas page size or padding!");
+		
+		if (maxImageSize <= 0 || maxImageSize + padding * 2 > pageSize)
+			throw new IllegalArgumentException("Atlas images must fit within a page!");
+		
+		this.window = window;
+		this.pageSize = pageSize;
+		this.padding = padding;
+		this.maxImageSize = maxImageSize;
+	}
+	
+	/**
+	 * Returns true if the image is small enough to be packed into this atlas.
+	 */
+	public boolean accepts(BufferedImage image) {
+		return accepts(image.getWidth(), image.getHeight());
+	}
+	
+	public boolean accepts(int width, int height) {
+		return width <= maxImageSize && height <= maxImageSize;
+	}
+	
+	/**
+	 * Packs the image into a page, returning a {@link Texture} over its area. The texture
+	 * still has to be processed by a {@link TextureLoader} so that its page is uploaded.
+	 */
+	public synchronized Texture add(BufferedImage image) {
+		if (!accepts(image))
+			throw new IllegalArgumentException("Image is too large to be packed into the atlas!");
+		
+		// Try the existing pages first, most recent first as it's the least full.
+		for (int i = pages.size() - 1; i >= 0; i--) {
+			Texture texture = pages.get(i).add(image);
+			
+			if (texture != null)
+				return texture;
+		}
+		
+		Boothy.logf(Boothy.LOG_DEBUG, "Creating atlas page {} at {}x{}px...", pages.size(), pageSize, pageSize);
+		
+		Page page = new Page();
+		pages.add(page);
+		return page.add(image);
+	}
+	
+	public int getPageSize() {
+		return pageSize;
+	}
+	
+	public int getPadding() {
+		return padding;
+	}
+	
+	public int getMaxImageSize() {
+		return maxImageSize;
+	}
+	
+	public synchronized int getPageCount() {
+		return pages.size();
+	}
+	
+	public synchronized int getImageCount() {
+		int images = 0;
+		
+		for (Page page : pages)
+			images += page.images;
+		
+		return images;
+	}
+	
+	/**
+	 * Returns the fraction of the given page's pixels that are covered by images.
+	 */
+	public synchronized float getFillRatio(int page) {
+		return (float) pages.get(page).used / ((float) pageSize * pageSize);
+	}
+	
+	/**
+	 * Returns the fraction of all pages' pixels that are covered by images.
+	 */
+	public synchronized float getFillRatio() {
+		if (pages.isEmpty())
+			return 0;
+		
+		long used = 0;
+		for (Page page : pages)
+			used += page.used;
+		
+		return (float) used / ((float) pageSize * pageSize * pages.size());
+	}
+	
+	public synchronized TextureBinding getPage(int page) {
+		return pages.get(page);
+	}
+	
+	private class Page extends TextureBinding {
+		
+		private BufferedImage canvas;
+		
+		// Each shelf is a horizontal strip with a fixed height and a moving x cursor.
+		private int[] shelfY = new int[8], shelfHeight = new int[8], shelfX = new int[8];
+		private int shelves = 0;
+		private int top = 0;
+		
+		private int images = 0;
+		private long used = 0;
+		
+		private Page() {
+			this(new BufferedImage(pageSize, pageSize, BufferedImage.TYPE_INT_ARGB));
+		}
+		
+		private Page(BufferedImage canvas) {
+			super(canvas);
+			this.canvas = canvas;
+			
+			// Held by the atlas, which keeps adding to the page, as well as its textures.
+			retain();
+		}
+		
+		private Texture add(final BufferedImage image) {
+			final int w = image.getWidth(), h = image.getHeight();
+			int pw = w + padding * 2, ph = h + padding * 2;
+			
+			// Find the shelf that wastes the least height.
+			int best = -1;
+			for (int i = 0; i < shelves; i++)
+				if (shelfHeight[i] >= ph && shelfX[i] + pw <= pageSize && (best < 0 || shelfHeight[i] < shelfHeight[best]))
+					best = i;
+			
+			// Open a new shelf if none fits.
+			if (best < 0) {
+				if (top + ph > pageSize)
+					return null;
+				
+				if (shelves == shelfY.length) {
+					shelfY = grow(shelfY);
+					shelfHeight = grow(shelfHeight);
+					shelfX = grow(shelfX);
+				}
+				
+				best = shelves++;
+				shelfY[best] = top;
+				shelfHeight[best] = ph;
+				shelfX[best] = 0;
+				top += ph;
+			}
+			
+			final int x = shelfX[best] + padding, y = shelfY[best] + padding;
+			shelfX[best] += pw;
+			
+			images++;
+			used += (long) w * h;
+			
+			synchronized (this) {
+				if (canvas != null) {
+					// Not uploaded yet, so the image goes out with the rest of the page.
+					Graphics2D graphics = canvas.createGraphics();
+					graphics.setComposite(AlphaComposite.Src);
+					graphics.drawImage(image, x, y, null);
+					graphics.dispose();
+				}else
+					window.queue(new Runnable() {
+						
+						@Override
+						public void run() {
+							upload(x, y, image);
+						}
+					
+					});
+			}
+			
+			float size = pageSize;
+			return new Texture(this, w, h, new float[] {
+					x / size, (x + w) / size,
+					y / size, (y + h) / size
+			});
+		}
+		
+		@Override
+		public synchronized void run() {
+			super.run();
+			canvas = null;
+		}
+	
+	}
+	
+	private static int[] grow(int[] array) {
+		int[] grown = new int[array.length * 2];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+
+}
@@ -4,28 +4,49 @@
 package net.alexmack.boothy.textures;
 
 import java.awt.image.BufferedImage;
+import java.io.File;
 import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.lwjgl.BufferUtils;
-import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL12;
+import net.alexmack.boothy.Boothy;
 
 public class TextureBinding implements Runnable {
-
-	private static final int PIXEL_SIZE = 4;
-	private static final int PIXEL_FORMAT = GL11.GL_RGBA;
-	private static final int PIXEL_FORMAT_INTERNAL = GL11.GL_RGBA8;
+	
+	// Shared by every upload, which all happen on the rendering thread.
+	private static final TexturePixels pixels = new TexturePixels();
 	
 	private int gl = 0;
 	private BufferedImage image;
 	private int width, height;
 	
+	// Pixels already in a layout GL accepts, used instead of an image.
+	private ByteBuffer data = null;
+	private int format, type;
+	
+	// Counted by each Texture drawing from this binding.
+	private final AtomicInteger references = new AtomicInteger();
+	
+	// Residency, kept by the TextureMemory tracking this binding, if any.
+	volatile TextureMemory memory = null;
+	volatile File source = null;
+	volatile boolean freed = false;
+	boolean evicted = false, reloading = false;
+	long bound = 0;
+	
 	public TextureBinding(BufferedImage image) {
 		this.image = image;
 		this.width = image.getWidth();
 		this.height = image.getHeight();
 	}
 	
+	TextureBinding(int width, int height, ByteBuffer data, int format, int type) {
+		this.width = width;
+		this.height = height;
+		this.data = data;
+		this.format = format;
+		this.type = type;
+	}
+	
 	public int getGl() {
 		return gl;
 	}
@@ -42,47 +63,155 @@ public class TextureBinding implements Runnable {
 		return gl != 0;
 	}
 	
+	/**
+	 * Returns true if the texture was evicted from GL to stay within its
+	 * {@link TextureMemory} budget, and hasn't been restored yet.
+	 */
+	public boolean isEvicted() {
+		return evicted;
+	}
+	
+	/**
+	 * Returns the number of {@link Texture}s drawing from this binding that haven't been
+	 * released.
+	 */
+	public int getReferences() {
+		return references.get();
+	}
+	
+	/**
+	 * Returns the number of bytes the texture takes up once uploaded.
+	 */
+	public long getBytes() {
+		return (long) width * height * 4;
+	}
+	
+	void retain() {
+		references.incrementAndGet();
+	}
+	
+	/**
+	 * Takes a reference only if there's still one held, so a binding on its way to being
+	 * deleted isn't revived.
+	 */
+	boolean retainIfUsed() {
+		for (int count; (count = references.get()) > 0;)
+			if (references.compareAndSet(count, count + 1))
+				return true;
+		
+		return false;
+	}
+	
+	void release() {
+		TextureMemory memory = this.memory;
+		
+		if (references.decrementAndGet() == 0 && memory != null)
+			memory.free(this);
+	}
+	
+	/**
+	 * Asks for an evicted texture to be reloaded from its source. This must be called from
+	 * the rendering {@link Thread}.
+	 */
+	void restore() {
+		TextureMemory memory = this.memory;
+		
+		if (evicted && !reloading && memory != null)
+			memory.reload(this);
+	}
+	
+	/**
+	 * Sets the pixels to upload when next run, used to reload an evicted texture.
+	 */
+	void setPixels(BufferedImage image) {
+		this.image = image;
+		this.data = null;
+	}
+	
+	void setPixels(ByteBuffer data, int format, int type) {
+		this.image = null;
+		this.data = data;
+		this.format = format;
+		this.type = type;
+	}
+	
+	/**
+	 * Creates the texture in GL without any pixels, for a {@link TextureLayer} to draw to.
+	 * This must be called from the rendering {@link Thread}.
+	 */
+	void allocate() {
+		if (gl == 0)
+			gl = Boothy.getBackend().createTexture(width, height, null, format, type, 4);
+	}
+	
+	/**
+	 * Deletes the texture from GL, leaving the binding to be uploaded again. This must be
+	 * called from the rendering {@link Thread}.
+	 */
+	void delete() {
+		if (gl != 0)
+			Boothy.getBackend().deleteTexture(gl);
+		
+		gl = 0;
+	}
+	
 	@Override
 	public void run() {
-		if (isReady())
+		// A binding that's been freed, or is waiting on its pixels, has nothing to upload.
+		if (isReady() || freed || (image == null && data == null))
 			return;
 		
-		// Create an array of pixels and load the BufferedImage into it.
-		int[] pixels = new int[width * height];
-		image.getRGB(0, 0, width, height, pixels, 0, width);
-		
-		// Create a buffer large enough to store the pixels as bytes.
-		ByteBuffer buffer = BufferUtils.createByteBuffer(pixels.length * PIXEL_SIZE);
+		ByteBuffer buffer;
+		int format, type, alignment;
 		
-		// Convert from 32-bit ARGB to 4-byte RGBA.
-		for (int pixel : pixels) {
-			buffer.put((byte) ((pixel >> 16) & 0xFF));
-			buffer.put((byte) ((pixel >> 8) & 0xFF));
-			buffer.put((byte) ((pixel) & 0xFF));
-			buffer.put((byte) ((pixel >> 24) & 0xFF));
+		if (data != null) {
+			buffer = data;
+			format = this.format;
+			type = this.type;
+			alignment = 4;
+		}else{
+			buffer = pixels.load(image);
+			format = pixels.format;
+			type = pixels.type;
+			alignment = pixels.alignment;
 		}
 		
-		buffer.flip();
-		
 		// Bind the buffer to OpenGL.
-		this.gl = GL11.glGenTextures();
-		GL11.glBindTexture(GL11.GL_TEXTURE_2D, gl);
-		
-		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL12.GL_TEXTURE_BASE_LEVEL, 0);
-		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL12.GL_TEXTURE_MAX_LEVEL, 0);
-		
-		// Default nearest neighbour scaling.
-		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
-		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
-		
-		GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, PIXEL_FORMAT_INTERNAL, width, height, 0, PIXEL_FORMAT, GL11.GL_UNSIGNED_BYTE, buffer);
+		this.gl = Boothy.getBackend().createTexture(width, height, buffer, format, type, alignment);
 		
 		// Dereference the image so the memory can be reclaimed.
 		this.image = null;
+		this.data = null;
+		
+		TextureMemory memory = this.memory;
+		if (memory != null)
+			memory.uploaded(this);
+	}
+	
+	/**
+	 * Replaces the area of the uploaded texture at the given position with the image.
+	 * This must be called from the rendering {@link Thread} once the binding is ready.
+	 */
+	void upload(int x, int y, BufferedImage image) {
+		ByteBuffer buffer = pixels.load(image);
+		
+		Boothy.getBackend().updateTexture(gl, x, y, image.getWidth(), image.getHeight(), buffer, pixels.format, pixels.type, pixels.alignment);
+	}
+	
+	/**
+	 * Frees the staging buffer kept between uploads, for use after a large batch of
+	 * textures has been loaded. This must be called from the rendering {@link Thread}.
+	 */
+	public static void releaseStaging() {
+		pixels.release();
 	}
 	
 	public void bind() {
-		GL11.glBindTexture(GL11.GL_TEXTURE_2D, gl);
+		Boothy.getBackend().bindTexture(gl);
+		
+		TextureMemory memory = this.memory;
+		if (memory != null)
+			bound = memory.getFrame();
 	}
 	
 }
@@ -0,0 +1,203 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy.textures;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.lwjgl.opengl.GL12;
+
+import net.alexmack.boothy.Boothy;
+
+/**
+ * Keeps decoded images on disk as raw ARGB pixels so that later loads of the same file can
+ * memory map them and hand them straight to GL, skipping the image decoder. Entries are
+ * keyed by the file's canonical path, length and modification time, so a changed file is
+ * simply decoded and cached again.
+ */
+public class TextureCache {
+	
+	private static final String EXTENSION = ".btex";
+	
+	// Written in native order, so a cache copied to a machine of the other order misses.
+	private static final int MAGIC = 0x42544558;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 32;
+	
+	private final File directory;
+	
+	private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong();
+	
+	public TextureCache(File directory) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Couldn't create texture cache \"" + directory.getPath() + "\"!");
+		
+		this.directory = directory;
+	}
+	
+	/**
+	 * Returns the cached pixels of the file, or null if they aren't cached or the file has
+	 * changed since.
+	 */
+	Entry get(File source) {
+		File file = getFile(source);
+		
+		if (!file.isFile()) {
+			misses.incrementAndGet();
+			return null;
+		}
+		
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			if (channel.size() < HEADER_SIZE) {
+				misses.incrementAndGet();
+				return null;
+			}
+			
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			mapped.order(ByteOrder.nativeOrder());
+			
+			int width = mapped.getInt(8), height = mapped.getInt(12);
+			
+			if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION
+					|| mapped.getLong(16) != source.length() || mapped.getLong(24) != source.lastModified()
+					|| channel.size() != HEADER_SIZE + (long) width * height * 4) {
+				misses.incrementAndGet();
+				return null;
+			}
+			
+			mapped.position(HEADER_SIZE);
+			ByteBuffer pixels = mapped.slice().order(ByteOrder.nativeOrder());
+			
+			hits.incrementAndGet();
+			return new Entry(width, height, pixels);
+		}catch (IOException e) {
+			Boothy.log(Boothy.LOG_WARNING, "Failed to read cached texture for \"" + source.getPath() + "\"!");
+			misses.incrementAndGet();
+			return null;
+		}
+	}
+	
+	/**
+	 * Caches the decoded image of the file. Failing to do so only costs the next load its
+	 * shortcut, so errors are logged rather than thrown.
+	 */
+	void put(File source, BufferedImage image) {
+		int width = image.getWidth(), height = image.getHeight();
+		File file = getFile(source);
+		File temporary = new File(directory, file.getName() + "." + Thread.currentThread().getId() + ".tmp");
+		
+		try {
+			try (RandomAccessFile raf = new RandomAccessFile(temporary, "rw"); FileChannel channel = raf.getChannel()) {
+				long size = HEADER_SIZE + (long) width * height * 4;
+				raf.setLength(size);
+				
+				MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+				mapped.order(ByteOrder.nativeOrder());
+				
+				mapped.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height);
+				mapped.putLong(source.length()).putLong(source.lastModified());
+				
+				// Write the pixels as ARGB ints, straight from the image where possible.
+				IntBuffer ints = mapped.asIntBuffer();
+				if (image.getType() == BufferedImage.TYPE_INT_ARGB && image.getRaster().getDataBuffer().getSize() == width * height)
+					ints.put(((DataBufferInt) image.getRaster().getDataBuffer()).getData());
+				else
+					ints.put(image.getRGB(0, 0, width, height, null, 0, width));
+			}
+			
+			// Moved into place whole so no reader ever sees a partial entry.
+			Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}catch (IOException e) {
+			Boothy.log(Boothy.LOG_WARNING, "Failed to cache texture for \"" + source.getPath() + "\"!");
+			temporary.delete();
+		}
+	}
+	
+	/**
+	 * Deletes every cached entry.
+	 */
+	public void clear() {
+		File[] files = directory.listFiles();
+		if (files == null)
+			return;
+		
+		for (File file : files)
+			if (file.getName().endsWith(EXTENSION))
+				file.delete();
+	}
+	
+	public File getDirectory() {
+		return directory;
+	}
+	
+	public long getHits() {
+		return hits.get();
+	}
+	
+	public long getMisses() {
+		return misses.get();
+	}
+	
+	private File getFile(File source) {
+		String path;
+		
+		try {
+			path = source.getCanonicalPath();
+		}catch (IOException e) {
+			path = source.getAbsolutePath();
+		}
+		
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(path.getBytes(StandardCharsets.UTF_8));
+			StringBuilder name = new StringBuilder(digest.length * 2 + EXTENSION.length());
+			
+			for (byte b : digest)
+				name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			
+			return new File(directory, name.append(EXTENSION).toString());
+		}catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to provide SHA-1.
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	static class Entry {
+		
+		final int width, height;
+		final ByteBuffer pixels;
+		
+		private Entry(int width, int height, ByteBuffer pixels) {
+			this.width = width;
+			this.height = height;
+			this.pixels = pixels;
+		}
+		
+		TextureBinding toBinding() {
+			// ARGB ints are BGRA when read from the bottom byte up.
+			return new TextureBinding(width, height, pixels, GL12.GL_BGRA, GL12.GL_UNSIGNED_INT_8_8_8_8_REV);
+		}
+		
+		BufferedImage toImage() {
+			BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+			pixels.asIntBuffer().get(((DataBufferInt) image.getRaster().getDataBuffer()).getData());
+			return image;
+		}
+	
+	}
+
+}
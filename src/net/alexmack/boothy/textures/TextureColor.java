@@ -3,7 +3,7 @@
  */
 package net.alexmack.boothy.textures;
 
-import org.lwjgl.opengl.GL11;
+import net.alexmack.boothy.Boothy;
 
 public class TextureColor {
 	
@@ -24,15 +24,19 @@ public class TextureColor {
 	}
 	
 	public static void push(float r, float g, float b) {
-		GL11.glColor3f(r, g, b);
+		// Batched quads take whichever color is current when they're flushed.
+		SpriteBatch.flushActive();
+		Boothy.getBackend().color(r, g, b, 1);
 	}
 	
 	public static void pushA(float r, float g, float b, float alpha) {
-		GL11.glColor4f(r, g, b, alpha);
+		SpriteBatch.flushActive();
+		Boothy.getBackend().color(r, g, b, alpha);
 	}
 	
 	public static void pop() {
-		GL11.glColor4f(1, 1, 1, 1);
+		SpriteBatch.flushActive();
+		Boothy.getBackend().color(1, 1, 1, 1);
 	}
 	
 }
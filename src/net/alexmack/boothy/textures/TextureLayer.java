@@ -0,0 +1,331 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy.textures;
+
+import org.lwjgl.opengl.GL11;
+
+import net.alexmack.boothy.Boothy;
+import net.alexmack.boothy.Renderer;
+import net.alexmack.boothy.Window;
+import net.alexmack.boothy.backend.Backend;
+import net.alexmack.boothy.input.WindowHandler;
+
+/**
+ * An offscreen texture that content is rendered into through a framebuffer. The layer is
+ * then drawn as a single {@link Texture} until it's marked dirty. This suits panels and
+ * backgrounds that take many draws but rarely change. A layer made to follow the window
+ * is resized by {@link #onResize(Window, int, int)}. It can be the window's
+ * {@link WindowHandler}, or be called from one. Without framebuffers, the content is
+ * drawn straight to the display every frame instead. Content is blended into the layer
+ * so that its texture holds premultiplied alpha, and translucent content looks the same
+ * cached as drawn directly. {@link #draw(Window, Renderer, int, int)} draws the texture
+ * with {@link Backend#BLEND_PREMULTIPLIED}, which anything else drawing
+ * {@link #getTexture()} must do too. Apart from {@link #invalidate()}, every method must
+ * be called from the rendering {@link Thread}.
+ */
+public class TextureLayer implements WindowHandler {
+	
+	// A top down projection puts the top of the content in the last row of the texture.
+	private static final float[] COORDINATES = new float[] {
+			// X origin and end.
+			0, 1,
+			// Y origin and end, flipped.
+			1, 0
+	};
+	
+	private static TextureLayer active = null;
+	
+	// Written only by the rendering thread.
+	private static volatile long allocatedBytes = 0;
+	private static volatile int allocatedLayers = 0;
+	
+	/**
+	 * Returns the layer currently being drawn to, or null if there isn't one.
+	 */
+	public static TextureLayer getActive() {
+		return active;
+	}
+	
+	/**
+	 * Returns the number of bytes of GL memory taken by every layer's texture.
+	 */
+	public static long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+	
+	/**
+	 * Returns the number of layers that have a texture in GL.
+	 */
+	public static int getAllocatedLayers() {
+		return allocatedLayers;
+	}
+	
+	private final boolean following;
+	private int width, height;
+	
+	private TextureBinding binding = null;
+	private Texture texture = null;
+	private int framebuffer = 0;
+	
+	// Set when the framebuffer couldn't be made, until the layer is resized.
+	private boolean failed = false;
+	private boolean released = false;
+	
+	private volatile boolean dirty = true;
+	private volatile long renders = 0;
+	
+	public TextureLayer(int width, int height) {
+		this(width, height, false);
+	}
+	
+	/**
+	 * Creates a layer the size of the window, which follows it as it's resized.
+	 */
+	public TextureLayer(Window window) {
+		this(window.getWidth(), window.getHeight(), true);
+	}
+	
+	private TextureLayer(int width, int height, boolean following) {
+		if (width <= 0 || height <= 0)
+			throw new IllegalArgumentException("Layer width and height must be positive!");
+		
+		this.width = width;
+		this.height = height;
+		this.following = following;
+	}
+	
+	/**
+	 * Marks the layer to be rendered again the next time it's drawn. This can be called
+	 * from any {@link Thread}.
+	 */
+	public void invalidate() {
+		dirty = true;
+	}
+	
+	public boolean isDirty() {
+		return dirty;
+	}
+	
+	/**
+	 * Changes the size of the layer. The old texture is deleted, and the layer is
+	 * rendered again at the new size the next time it's drawn.
+	 */
+	public void resize(int width, int height) {
+		if (width <= 0 || height <= 0)
+			throw new IllegalArgumentException("Layer width and height must be positive!");
+		
+		if (width == this.width && height == this.height)
+			return;
+		
+		free();
+		this.width = width;
+		this.height = height;
+		failed = false;
+		dirty = true;
+	}
+	
+	/**
+	 * Resizes the layer to fit the window, if it follows the window.
+	 */
+	@Override
+	public void onResize(Window window, int width, int height) {
+		if (following && width > 0 && height > 0)
+			resize(width, height);
+	}
+	
+	/**
+	 * Draws the layer at the given position. First, if the layer is dirty, the content is
+	 * rendered into it. If framebuffers aren't available, the content is rendered
+	 * straight to the display at the position.
+	 */
+	public void draw(Window window, Renderer content, int x, int y) {
+		if (dirty || framebuffer == 0) {
+			if (!begin()) {
+				drawDirect(window, content, x, y);
+				return;
+			}
+			
+			try {
+				content.render(window);
+			}finally {
+				end();
+			}
+		}
+		
+		// Only the layer is drawn premultiplied, so it's kept out of the batches around it.
+		Backend backend = Boothy.getBackend();
+		SpriteBatch.flushActive();
+		ShapeBatch.flushActive();
+		backend.blend(Backend.BLEND_PREMULTIPLIED);
+		
+		texture.draw(x, y);
+		
+		SpriteBatch.flushActive();
+		backend.blend(Backend.BLEND_ALPHA);
+	}
+	
+	private void drawDirect(Window window, Renderer content, int x, int y) {
+		Backend backend = Boothy.getBackend();
+		
+		// Batched draws are placed when they're flushed, so flush them on each side of the move.
+		SpriteBatch.flushActive();
+		ShapeBatch.flushActive();
+		backend.pushMatrix();
+		backend.translate(x, y);
+		
+		try {
+			content.render(window);
+		}finally {
+			SpriteBatch.flushActive();
+			ShapeBatch.flushActive();
+			backend.popMatrix();
+		}
+	}
+	
+	/**
+	 * Clears the layer and directs drawing to it, returning false if it can't be drawn to.
+	 * Drawing is placed as it would be on the display, with the layer's top left corner at
+	 * the display's. Layers can't be nested, so {@link #end()} must be called before
+	 * another layer begins.
+	 */
+	public boolean begin() {
+		if (released)
+			throw new IllegalStateException("Can't draw to a released layer!");
+		
+		if (active != null)
+			throw new IllegalStateException("A layer is already being drawn to!");
+		
+		if (!allocate())
+			return false;
+		
+		// Anything batched so far belongs on whatever was being drawn to before.
+		SpriteBatch.flushActive();
+		ShapeBatch.flushActive();
+		
+		Backend backend = Boothy.getBackend();
+		backend.bindFramebuffer(framebuffer);
+		backend.setup(width, height);
+		backend.blend(Backend.BLEND_SEPARATE_ALPHA);
+		backend.clear();
+		
+		// Cleared before drawing, so a change made while drawing renders it again.
+		dirty = false;
+		active = this;
+		
+		return true;
+	}
+	
+	/**
+	 * Finishes drawing to the layer, directing drawing back to the display.
+	 */
+	public void end() {
+		if (active != this)
+			throw new IllegalStateException("TextureLayer hasn't begun!");
+		
+		SpriteBatch.flushActive();
+		ShapeBatch.flushActive();
+		
+		Backend backend = Boothy.getBackend();
+		backend.bindFramebuffer(0);
+		backend.setup(backend.getWidth(), backend.getHeight());
+		backend.blend(Backend.BLEND_ALPHA);
+		
+		active = null;
+		renders++;
+	}
+	
+	private boolean allocate() {
+		if (framebuffer != 0)
+			return true;
+		
+		Backend backend = Boothy.getBackend();
+		if (failed || !backend.isFramebufferCapable())
+			return false;
+		
+		binding = new TextureBinding(width, height, null, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE);
+		binding.allocate();
+		
+		framebuffer = backend.createFramebuffer(binding.getGl());
+		if (framebuffer == 0) {
+			Boothy.logf(Boothy.LOG_ERROR, "Couldn't create a framebuffer for a {}x{} layer!", width, height);
+			
+			binding.delete();
+			binding = null;
+			failed = true;
+			return false;
+		}
+		
+		texture = new Texture(binding, width, height, COORDINATES);
+		
+		allocatedBytes += binding.getBytes();
+		allocatedLayers++;
+		
+		Boothy.logf(Boothy.LOG_DEBUG, "Layers take {} bytes after allocating {}x{}.", allocatedBytes, width, height);
+		return true;
+	}
+	
+	private void free() {
+		if (framebuffer == 0)
+			return;
+		
+		allocatedBytes -= binding.getBytes();
+		allocatedLayers--;
+		
+		texture.release();
+		Boothy.getBackend().deleteFramebuffer(framebuffer);
+		binding.delete();
+		
+		texture = null;
+		binding = null;
+		framebuffer = 0;
+	}
+	
+	/**
+	 * Deletes the layer's texture and framebuffer from GL. The layer can't be drawn to
+	 * afterwards.
+	 */
+	public void release() {
+		if (active == this)
+			throw new IllegalStateException("Can't release a layer while it's being drawn to!");
+		
+		free();
+		released = true;
+	}
+	
+	public boolean isReleased() {
+		return released;
+	}
+	
+	/**
+	 * Returns the texture holding what was last rendered, with premultiplied alpha, or null
+	 * if nothing has been. The texture stops drawing once the layer is resized or released.
+	 */
+	public Texture getTexture() {
+		return texture;
+	}
+	
+	public int getWidth() {
+		return width;
+	}
+	
+	public int getHeight() {
+		return height;
+	}
+	
+	/**
+	 * Returns the number of bytes of GL memory the layer's texture takes, or 0 if it has
+	 * none.
+	 */
+	public long getBytes() {
+		return framebuffer != 0 ? binding.getBytes() : 0;
+	}
+	
+	/**
+	 * Returns the number of times content has been rendered into the layer.
+	 */
+	public long getRenders() {
+		return renders;
+	}
+
+}
@@ -5,65 +5,577 @@ package net.alexmack.boothy.textures;
 
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.imageio.ImageIO;
 
+import org.lwjgl.opengl.GL12;
+
 import net.alexmack.boothy.Boothy;
 import net.alexmack.boothy.Window;
 
 public class TextureLoader {
 	
 	private Window window;
+	private volatile TextureAtlas atlas = null;
+	private volatile TextureCache cache = null;
+	private final TextureMemory memory = new TextureMemory(this);
+	
+	// Loads of the same source share a binding, for as long as any texture still uses it.
+	private volatile boolean interning = true;
+	private final ConcurrentHashMap<String, FutureTask<Interned>> interned = new ConcurrentHashMap<>();
+	private final ReferenceQueue<TextureBinding> collected = new ReferenceQueue<>();
+	private final AtomicLong internHits = new AtomicLong(), internMisses = new AtomicLong();
+	
+	private int decoderThreads = Runtime.getRuntime().availableProcessors();
+	private ExecutorService decoder = null;
+	private final Map<String, Long> decodeTimes = new ConcurrentHashMap<>();
 	
 	public TextureLoader(Window window) {
 		this.window = window;
 	}
 	
+	/**
+	 * Decodes the file on a worker {@link Thread}. Once decoded, the texture is processed
+	 * as normal so its binding is queued for upload straight away.
+	 */
+	public Future<Texture> loadAsync(final File file) {
+		return getDecoder().submit(new Callable<Texture>() {
+			
+			@Override
+			public Texture call() throws IOException {
+				long start = System.nanoTime();
+				Texture texture = fromFile(file);
+				long time = System.nanoTime() - start;
+				
+				decodeTimes.put(file.getPath(), time);
+				
+				Boothy.logf(Boothy.LOG_DEBUG, "Decoded \"{}\" in {}ms.", file.getPath(), time / 1000000);
+				return texture;
+			}
+			
+		});
+	}
+	
+	public List<Future<Texture>> loadAsync(Collection<File> files) {
+		List<Future<Texture>> futures = new ArrayList<>(files.size());
+		
+		for (File file : files)
+			futures.add(loadAsync(file));
+		
+		return futures;
+	}
+	
+	/**
+	 * Blocks until every texture has been decoded, returning them in the same order. Any
+	 * that failed are replaced by the {@link Texture404}.
+	 */
+	public List<Texture> await(List<Future<Texture>> futures) throws InterruptedException {
+		List<Texture> textures = new ArrayList<>(futures.size());
+		
+		for (Future<Texture> future : futures)
+			try {
+				textures.add(future.get());
+			}catch (ExecutionException e) {
+				Boothy.log(Boothy.LOG_ERROR, "Failed to load texture asynchronously!", String.valueOf(e.getCause().getMessage()));
+				textures.add(Texture404.get(this));
+			}
+		
+		return textures;
+	}
+	
+	/**
+	 * Sets the number of worker threads used by {@link #loadAsync(File)}. This has no
+	 * effect once the first asynchronous load has started.
+	 */
+	public synchronized void setDecoderThreads(int threads) {
+		if (threads <= 0)
+			throw new IllegalArgumentException("There must be at least one decoder thread!");
+		
+		decoderThreads = threads;
+	}
+	
+	/**
+	 * Stops the decoder threads once any outstanding loads have finished.
+	 */
+	public synchronized void shutdown() {
+		if (decoder != null)
+			decoder.shutdown();
+		
+		decoder = null;
+	}
+	
+	private synchronized ExecutorService getDecoder() {
+		if (decoder == null)
+			decoder = Executors.newFixedThreadPool(decoderThreads, new ThreadFactory() {
+				
+				private final AtomicInteger count = new AtomicInteger();
+				
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, Boothy.NAME + " Decoder " + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+				
+			});
+		
+		return decoder;
+	}
+	
+	/**
+	 * Returns how long each asynchronously loaded file took to decode, in nanoseconds,
+	 * keyed by path.
+	 */
+	public Map<String, Long> getDecodeTimes() {
+		return Collections.unmodifiableMap(new HashMap<>(decodeTimes));
+	}
+	
+	/**
+	 * Returns how long the file took to decode in nanoseconds, or -1 if it hasn't been
+	 * loaded asynchronously.
+	 */
+	public long getDecodeTime(File file) {
+		Long time = decodeTimes.get(file.getPath());
+		return time != null ? time : -1;
+	}
+	
+	/**
+	 * Sets the {@link TextureAtlas} that small images are packed into, or null to give
+	 * every image its own {@link TextureBinding}.
+	 */
+	public void setAtlas(TextureAtlas atlas) {
+		this.atlas = atlas;
+	}
+	
+	public TextureAtlas getAtlas() {
+		return atlas;
+	}
+	
+	/**
+	 * Sets the {@link TextureCache} that decoded files are kept in, or null to always
+	 * decode files.
+	 */
+	public void setCache(TextureCache cache) {
+		this.cache = cache;
+	}
+	
+	public TextureCache getCache() {
+		return cache;
+	}
+	
+	/**
+	 * Returns the {@link TextureMemory} tracking the textures this loader uploads, through
+	 * which a budget can be set.
+	 */
+	public TextureMemory getMemory() {
+		return memory;
+	}
+	
+	Window getWindow() {
+		return window;
+	}
+	
 	protected Texture process(Texture texture) {
-		// Queue the binding so it can be loaded in the render thread.
-		window.queue(texture.getBinding());
+		memory.track(texture.getBinding());
+		
+		// Queue the binding so it can be loaded in the render thread, behind anything more
+		// urgent than a bulk upload.
+		window.queue(texture.getBinding(), Window.PRIORITY_LOW);
 		return texture;
 	}
 	
 	public Texture fromImage(BufferedImage image) {
+		TextureAtlas atlas = this.atlas;
+		
+		// Pack small images into the atlas when it's enabled.
+		if (atlas != null && atlas.accepts(image))
+			return process(atlas.add(image));
+		
 		return process(new Texture(image));
 	}
 	
-	public Texture fromFile(File file) throws IOException {
-		return fromImage(ImageIO.read(file));
+	/**
+	 * Loads the file, or if it's already been loaded and is still in use, returns another
+	 * {@link Texture} drawing from the same binding. Each texture returned should be
+	 * released separately.
+	 */
+	public Texture fromFile(final File file) throws IOException {
+		if (!interning)
+			return load(file);
+		
+		String path;
+		try {
+			path = file.getCanonicalPath();
+		}catch (IOException e) {
+			path = file.getAbsolutePath();
+		}
+		
+		// A file that's changed since is a different texture.
+		return intern("file:" + path + ":" + file.length() + ":" + file.lastModified(), new Callable<Texture>() {
+			
+			@Override
+			public Texture call() throws IOException {
+				return load(file);
+			}
+			
+		});
+	}
+	
+	private Texture load(File file) throws IOException {
+		TextureCache cache = this.cache;
+		
+		if (cache != null) {
+			TextureCache.Entry entry = cache.get(file);
+			
+			if (entry != null) {
+				// Cached pixels go straight to GL, unless they're small enough to be packed.
+				TextureAtlas atlas = this.atlas;
+				if (atlas != null && atlas.accepts(entry.width, entry.height))
+					return fromImage(entry.toImage());
+				
+				TextureBinding binding = entry.toBinding();
+				binding.source = file;
+				return process(new Texture(binding));
+			}
+		}
+		
+		BufferedImage image = ImageIO.read(file);
+		if (image == null)
+			throw new IOException("No decoder for \"" + file.getPath() + "\"!");
+		
+		if (cache != null)
+			cache.put(file, image);
+		
+		TextureAtlas atlas = this.atlas;
+		if (atlas != null && atlas.accepts(image))
+			return process(atlas.add(image));
+		
+		// Only textures with a binding of their own can be evicted and reloaded from the file.
+		TextureBinding binding = new TextureBinding(image);
+		binding.source = file;
+		return process(new Texture(binding));
+	}
+	
+	/**
+	 * Decodes the evicted binding's file again on a worker {@link Thread}, then queues it
+	 * to be uploaded.
+	 */
+	void reload(final TextureBinding binding) {
+		final File file = binding.source;
+		
+		getDecoder().execute(new Runnable() {
+			
+			@Override
+			public void run() {
+				if (binding.freed)
+					return;
+				
+				try {
+					TextureCache cache = TextureLoader.this.cache;
+					TextureCache.Entry entry = cache != null ? cache.get(file) : null;
+					
+					// The file may have been cached again at a new size since the binding was made.
+					if (entry != null) {
+						if (entry.width != binding.getWidth() || entry.height != binding.getHeight())
+							throw new IOException("\"" + file.getPath() + "\" has changed!");
+						
+						binding.setPixels(entry.pixels, GL12.GL_BGRA, GL12.GL_UNSIGNED_INT_8_8_8_8_REV);
+					}else{
+						BufferedImage image = ImageIO.read(file);
+						if (image == null || image.getWidth() != binding.getWidth() || image.getHeight() != binding.getHeight())
+							throw new IOException("\"" + file.getPath() + "\" has changed!");
+						
+						binding.setPixels(image);
+					}
+					
+					window.queue(binding, Window.PRIORITY_LOW);
+				}catch (IOException e) {
+					Boothy.log(Boothy.LOG_ERROR, "Failed to reload texture from \"" + file.getPath() + "\"!", e.getMessage());
+					
+					// Don't try again, the texture stays blank.
+					binding.source = null;
+				}
+			}
+			
+		});
 	}
 	
 	public Texture fromFileSafe(File file) {
 		try {
-			return fromImage(ImageIO.read(file));
+			return fromFile(file);
 		}catch (IOException e) {
 			Boothy.log(Boothy.LOG_ERROR, "Failed to load texture from \"" + file.getPath() + "\"!");
 			return Texture404.get(this);
 		}
 	}
 	
+	/**
+	 * Loads the image in the stream, sharing the binding of any image with the same
+	 * contents loaded before that's still in use, the same as {@link #fromFile(File)}.
+	 */
 	public Texture fromStream(InputStream stream) throws IOException {
-		return fromImage(ImageIO.read(stream));
+		if (!interning)
+			return fromImage(read(stream));
+		
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		byte[] chunk = new byte[8192];
+		
+		for (int read; (read = stream.read(chunk)) >= 0;)
+			buffer.write(chunk, 0, read);
+		
+		return fromBytes(buffer.toByteArray());
 	}
 	
 	public Texture fromStreamSafe(InputStream stream) {
 		try {
-			return fromImage(ImageIO.read(stream));
+			return fromStream(stream);
 		}catch (IOException e) {
 			Boothy.log(Boothy.LOG_ERROR, "Failed to load texture from stream!");
 			return Texture404.get(this);
 		}
 	}
 	
-	public Texture fromBytes(byte[] bytes) throws IOException {
-		return fromStream(new ByteArrayInputStream(bytes));
+	public Texture fromBytes(final byte[] bytes) throws IOException {
+		if (!interning)
+			return fromImage(read(new ByteArrayInputStream(bytes)));
+		
+		byte[] digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1").digest(bytes);
+		}catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to provide SHA-1.
+			throw new IllegalStateException(e);
+		}
+		
+		StringBuilder key = new StringBuilder(5 + digest.length * 2).append("sha1:");
+		for (byte b : digest)
+			key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		
+		return intern(key.toString(), new Callable<Texture>() {
+			
+			@Override
+			public Texture call() throws IOException {
+				return fromImage(read(new ByteArrayInputStream(bytes)));
+			}
+			
+		});
 	}
 	
 	public Texture fromBytesSafe(byte[] bytes) {
-		return fromStreamSafe(new ByteArrayInputStream(bytes));
+		try {
+			return fromBytes(bytes);
+		}catch (IOException e) {
+			Boothy.log(Boothy.LOG_ERROR, "Failed to load texture from bytes!");
+			return Texture404.get(this);
+		}
+	}
+	
+	private static BufferedImage read(InputStream stream) throws IOException {
+		BufferedImage image = ImageIO.read(stream);
+		if (image == null)
+			throw new IOException("No decoder for image!");
+		
+		return image;
+	}
+	
+	/**
+	 * Returns a texture for the key, loading it only if there's no binding for the key still
+	 * in use. Concurrent loads of the same key wait for the first rather than loading too.
+	 */
+	private Texture intern(String key, Callable<Texture> loader) throws IOException {
+		expunge();
+		
+		while (true) {
+			FutureTask<Interned> task = interned.get(key);
+			boolean loaded = false;
+			
+			if (task == null) {
+				Load load = new Load(key, loader, collected);
+				FutureTask<Interned> created = load.task = new FutureTask<>(load);
+				task = interned.putIfAbsent(key, created);
+				
+				if (task == null) {
+					internMisses.incrementAndGet();
+					created.run();
+					task = created;
+					loaded = true;
+				}
+			}
+			
+			Interned entry;
+			try {
+				entry = task.get();
+			}catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for \"" + key + "\" to load!");
+			}catch (ExecutionException e) {
+				// Failures aren't kept, so the next load tries again.
+				interned.remove(key, task);
+				
+				if (e.getCause() instanceof IOException)
+					throw (IOException) e.getCause();
+				if (e.getCause() instanceof RuntimeException)
+					throw (RuntimeException) e.getCause();
+				throw new IOException(e.getCause());
+			}
+			
+			// Whoever loaded it keeps the texture that was loaded, so that the entry only
+			// holds the binding weakly.
+			if (loaded) {
+				Texture texture = entry.texture;
+				entry.texture = null;
+				return texture;
+			}
+			
+			Texture texture = entry.view();
+			if (texture != null) {
+				internHits.incrementAndGet();
+				return texture;
+			}
+			
+			// Every texture using the binding has been released, so load it again.
+			interned.remove(key, task);
+		}
+	}
+	
+	/**
+	 * Drops the entries of bindings that have been garbage collected.
+	 */
+	private void expunge() {
+		for (BindingReference reference; (reference = (BindingReference) collected.poll()) != null;)
+			interned.remove(reference.key, reference.task);
+	}
+	
+	/**
+	 * Sets whether loads of a file, or of streams with the same contents, share a binding
+	 * while any texture from an earlier load is still in use. On by default.
+	 */
+	public void setInterning(boolean interning) {
+		this.interning = interning;
+		
+		if (!interning)
+			interned.clear();
+	}
+	
+	public boolean isInterning() {
+		return interning;
+	}
+	
+	/**
+	 * Returns the number of loads that shared the binding of an earlier one.
+	 */
+	public long getInternHits() {
+		return internHits.get();
+	}
+	
+	/**
+	 * Returns the number of loads that had to decode their source.
+	 */
+	public long getInternMisses() {
+		return internMisses.get();
+	}
+	
+	/**
+	 * Returns the number of sources with a binding that may still be shared.
+	 */
+	public int getInternedCount() {
+		expunge();
+		return interned.size();
+	}
+	
+	private static class Load implements Callable<Interned> {
+		
+		private final String key;
+		private final Callable<Texture> loader;
+		private final ReferenceQueue<TextureBinding> collected;
+		
+		// Set before running, so the reference can find its entry to remove.
+		private FutureTask<Interned> task;
+		
+		private Load(String key, Callable<Texture> loader, ReferenceQueue<TextureBinding> collected) {
+			this.key = key;
+			this.loader = loader;
+			this.collected = collected;
+		}
+		
+		@Override
+		public Interned call() throws Exception {
+			Texture texture = loader.call();
+			return new Interned(texture, new BindingReference(texture.getBinding(), key, task, collected));
+		}
+		
+	}
+	
+	private static class Interned {
+		
+		// Only kept until the loading thread picks it up.
+		private Texture texture;
+		
+		private final BindingReference binding;
+		private final int width, height;
+		private final float[] coordinates;
+		
+		private Interned(Texture texture, BindingReference binding) {
+			this.texture = texture;
+			this.binding = binding;
+			this.width = texture.getWidth();
+			this.height = texture.getHeight();
+			this.coordinates = texture.getCoordinates();
+		}
+		
+		/**
+		 * Returns a new texture drawing from the binding, or null if it's no longer in use.
+		 */
+		private Texture view() {
+			TextureBinding binding = this.binding.get();
+			if (binding == null || !binding.retainIfUsed())
+				return null;
+			
+			Texture texture = new Texture(binding, width, height, coordinates);
+			
+			// The texture took its own reference, so drop the one taken to check.
+			binding.release();
+			return texture;
+		}
+		
+	}
+	
+	private static class BindingReference extends WeakReference<TextureBinding> {
+		
+		private final String key;
+		private final FutureTask<Interned> task;
+		
+		private BindingReference(TextureBinding binding, String key, FutureTask<Interned> task, ReferenceQueue<TextureBinding> collected) {
+			super(binding, collected);
+			this.key = key;
+			this.task = task;
+		}
+		
 	}
 	
 }
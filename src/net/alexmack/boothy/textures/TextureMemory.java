@@ -0,0 +1,216 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy.textures;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import net.alexmack.boothy.Boothy;
+import net.alexmack.boothy.Window;
+
+/**
+ * Tracks the GL memory used by the {@link TextureBinding}s a {@link TextureLoader} uploads.
+ * A binding is deleted from GL once every {@link Texture} drawing from it has been
+ * released. While more than the budget is resident, the textures bound least recently are
+ * evicted, as long as they were loaded from a file and weren't bound this frame, and are
+ * reloaded from the file in the background the next time they're drawn. Atlas pages and
+ * textures made from images are never evicted.
+ */
+public class TextureMemory {
+	
+	private static final Comparator<TextureBinding> BY_BOUND = new Comparator<TextureBinding>() {
+		
+		@Override
+		public int compare(TextureBinding b1, TextureBinding b2) {
+			return Long.compare(b1.bound, b2.bound);
+		}
+	
+	};
+	
+	private final TextureLoader loader;
+	private volatile long budget = Long.MAX_VALUE;
+	
+	// Only used by the rendering thread.
+	private final Set<TextureBinding> resident = new HashSet<>();
+	
+	private volatile long residentBytes = 0;
+	private volatile long evictions = 0, reloads = 0, deletes = 0;
+	
+	// Counts for the frame these were last made in, and the frame before it.
+	private volatile long frame = -1;
+	private volatile int frameEvictions = 0, frameReloads = 0;
+	private volatile int lastEvictions = 0, lastReloads = 0;
+	
+	private final Runnable trim = new Runnable() {
+		
+		@Override
+		public void run() {
+			trim();
+		}
+	
+	};
+	
+	TextureMemory(TextureLoader loader) {
+		this.loader = loader;
+	}
+	
+	/**
+	 * Starts tracking the binding, which the loader is about to upload.
+	 */
+	void track(TextureBinding binding) {
+		binding.memory = this;
+	}
+	
+	void uploaded(TextureBinding binding) {
+		if (resident.add(binding))
+			residentBytes += binding.getBytes();
+		
+		// Counts as a use, so it isn't evicted before it's had the chance to be drawn.
+		binding.bound = getFrame();
+		binding.evicted = false;
+		binding.reloading = false;
+		
+		trim();
+	}
+	
+	void reload(TextureBinding binding) {
+		binding.reloading = true;
+		
+		count();
+		reloads++;
+		frameReloads++;
+		
+		loader.reload(binding);
+	}
+	
+	void free(final TextureBinding binding) {
+		binding.freed = true;
+		
+		loader.getWindow().queue(new Runnable() {
+			
+			@Override
+			public void run() {
+				if (resident.remove(binding))
+					residentBytes -= binding.getBytes();
+				
+				binding.delete();
+				deletes++;
+			}
+		
+		}, Window.PRIORITY_LOW);
+	}
+	
+	private void trim() {
+		long budget = this.budget;
+		if (residentBytes <= budget)
+			return;
+		
+		long now = getFrame();
+		List<TextureBinding> candidates = new ArrayList<>();
+		
+		for (TextureBinding binding : resident)
+			if (binding.source != null && binding.bound < now)
+				candidates.add(binding);
+		
+		Collections.sort(candidates, BY_BOUND);
+		
+		for (int i = 0; i < candidates.size() && residentBytes > budget; i++)
+			evict(candidates.get(i));
+		
+		if (residentBytes > budget)
+			Boothy.logf(Boothy.LOG_DEBUG, "Textures in use take {} bytes, over the budget of {}.", residentBytes, budget);
+	}
+	
+	private void evict(TextureBinding binding) {
+		resident.remove(binding);
+		residentBytes -= binding.getBytes();
+		
+		binding.delete();
+		binding.evicted = true;
+		
+		count();
+		evictions++;
+		frameEvictions++;
+	}
+	
+	private void count() {
+		long now = getFrame();
+		if (now == frame)
+			return;
+		
+		// Carry the counts over if they were made in the frame just finished.
+		lastEvictions = now == frame + 1 ? frameEvictions : 0;
+		lastReloads = now == frame + 1 ? frameReloads : 0;
+		frameEvictions = 0;
+		frameReloads = 0;
+		frame = now;
+	}
+	
+	long getFrame() {
+		return loader.getWindow().getFrame();
+	}
+	
+	/**
+	 * Sets the most bytes of textures to keep in GL before evicting, unlimited by default.
+	 * Lowering it evicts on the next frame.
+	 */
+	public void setBudget(long bytes) {
+		if (bytes < 0)
+			throw new IllegalArgumentException("The texture budget can't be negative!");
+		
+		budget = bytes;
+		loader.getWindow().queue(trim, Window.PRIORITY_LOW);
+	}
+	
+	public long getBudget() {
+		return budget;
+	}
+	
+	/**
+	 * Returns the number of bytes of textures currently in GL.
+	 */
+	public long getResidentBytes() {
+		return residentBytes;
+	}
+	
+	public long getEvictions() {
+		return evictions;
+	}
+	
+	/**
+	 * Returns the number of evicted textures that have been asked to reload.
+	 */
+	public long getReloads() {
+		return reloads;
+	}
+	
+	/**
+	 * Returns the number of textures deleted because every texture drawing from them was
+	 * released.
+	 */
+	public long getDeletes() {
+		return deletes;
+	}
+	
+	/**
+	 * Returns the number of textures evicted during the last frame drawn.
+	 */
+	public int getFrameEvictions() {
+		long last = getFrame() - 1;
+		return frame == last ? frameEvictions : frame == last + 1 ? lastEvictions : 0;
+	}
+	
+	/**
+	 * Returns the number of textures asked to reload during the last frame drawn.
+	 */
+	public int getFrameReloads() {
+		long last = getFrame() - 1;
+		return frame == last ? frameReloads : frame == last + 1 ? lastReloads : 0;
+	}
+
+}
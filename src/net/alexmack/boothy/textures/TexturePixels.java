@@ -0,0 +1,123 @@
+/* 
+ * Copyright 2017 Alexander Mackenzie
+ */
+package net.alexmack.boothy.textures;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.WritableRaster;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+
+// Copies images into a reusable staging buffer, in whichever layout lets GL take the
+// pixels without converting them one at a time.
+class TexturePixels {
+	
+	private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+	
+	private ByteBuffer staging = null;
+	
+	// The layout of the last image loaded, to be passed to GL.
+	int format, type, alignment;
+	
+	/**
+	 * Loads the image into the staging buffer, returning it ready to upload. The buffer is
+	 * only valid until the next load.
+	 */
+	ByteBuffer load(BufferedImage image) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		int pixels = width * height;
+		
+		switch (image.getType()) {
+			case BufferedImage.TYPE_INT_ARGB:
+				if (isPlain(image, pixels))
+					return loadARGB(((DataBufferInt) image.getRaster().getDataBuffer()).getData(), false);
+				break;
+			case BufferedImage.TYPE_INT_RGB:
+				if (isPlain(image, pixels))
+					return loadARGB(((DataBufferInt) image.getRaster().getDataBuffer()).getData(), true);
+				break;
+			case BufferedImage.TYPE_4BYTE_ABGR:
+				if (isPlain(image, pixels * 4)) {
+					// ABGR bytes read as a native int are RGBA from the top byte down, or
+					// from the bottom byte up on big endian machines.
+					format = GL11.GL_RGBA;
+					type = LITTLE_ENDIAN ? GL12.GL_UNSIGNED_INT_8_8_8_8 : GL12.GL_UNSIGNED_INT_8_8_8_8_REV;
+					alignment = 4;
+					return loadBytes(((DataBufferByte) image.getRaster().getDataBuffer()).getData());
+				}
+				break;
+			case BufferedImage.TYPE_3BYTE_BGR:
+				if (isPlain(image, pixels * 3)) {
+					// Rows of three byte pixels aren't necessarily four byte aligned.
+					format = GL12.GL_BGR;
+					type = GL11.GL_UNSIGNED_BYTE;
+					alignment = 1;
+					return loadBytes(((DataBufferByte) image.getRaster().getDataBuffer()).getData());
+				}
+				break;
+		}
+		
+		// Anything else is converted to ARGB by the image itself.
+		return loadARGB(image.getRGB(0, 0, width, height, null, 0, width), false);
+	}
+	
+	private ByteBuffer loadARGB(int[] pixels, boolean opaque) {
+		ByteBuffer buffer = stage(pixels.length * 4);
+		IntBuffer ints = buffer.asIntBuffer();
+		
+		if (opaque)
+			for (int pixel : pixels)
+				ints.put(pixel | 0xFF000000);
+		else
+			ints.put(pixels);
+		
+		// ARGB ints are BGRA when read from the bottom byte up.
+		format = GL12.GL_BGRA;
+		type = GL12.GL_UNSIGNED_INT_8_8_8_8_REV;
+		alignment = 4;
+		return buffer;
+	}
+	
+	private ByteBuffer loadBytes(byte[] bytes) {
+		ByteBuffer buffer = stage(bytes.length);
+		buffer.put(bytes);
+		buffer.flip();
+		return buffer;
+	}
+	
+	private ByteBuffer stage(int size) {
+		// Grow the staging buffer to fit, it's kept for the next upload.
+		if (staging == null || staging.capacity() < size)
+			staging = BufferUtils.createByteBuffer(size);
+		
+		staging.clear();
+		staging.limit(size);
+		return staging;
+	}
+	
+	/**
+	 * Frees the staging buffer, it'll be recreated by the next load.
+	 */
+	void release() {
+		staging = null;
+	}
+	
+	// Whether the image's data buffer holds exactly its own pixels, with nothing shared.
+	private static boolean isPlain(BufferedImage image, int size) {
+		WritableRaster raster = image.getRaster();
+		DataBuffer data = raster.getDataBuffer();
+		
+		return data.getNumBanks() == 1 && data.getOffset() == 0 && data.getSize() == size
+				&& raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0;
+	}
+
+}